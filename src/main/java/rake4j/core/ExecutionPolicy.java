@@ -0,0 +1,89 @@
+package rake4j.core;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Decides whether a stage of the analysis runs in parallel, and on which pool.
+ *
+ * A stage goes parallel only when its work size, in characters of input text,
+ * reaches the threshold, so that small inputs never pay for fork/join and never
+ * contend for the pool. Override {@link #isParallel(long)} for other rules.
+ */
+public class ExecutionPolicy {
+    /**
+     * Below this many characters the stages run sequentially by default
+     */
+    public static final long DEFAULT_THRESHOLD = 1 << 17;
+
+    private static final ExecutionPolicy SEQUENTIAL = new ExecutionPolicy(null, Long.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final long threshold;
+
+    /**
+     * @param pool - the pool running the parallel stages, null to run everything sequentially
+     * @param threshold - the work size from which on a stage runs in parallel
+     */
+    protected ExecutionPolicy(ForkJoinPool pool, long threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return a policy running every stage on the caller thread
+     */
+    public static ExecutionPolicy sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @return a policy using the common pool above the default threshold
+     */
+    public static ExecutionPolicy parallel() {
+        return parallel(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool - the pool running the parallel stages
+     * @param threshold - the work size, in characters, from which on a stage runs in parallel
+     */
+    public static ExecutionPolicy parallel(ForkJoinPool pool, long threshold) {
+        return new ExecutionPolicy(pool, threshold);
+    }
+
+    /**
+     * @param workSize - the number of characters processed by the stage
+     */
+    public boolean isParallel(long workSize) {
+        return pool != null && pool.getParallelism() > 1 && workSize >= threshold;
+    }
+
+    /**
+     * @return the pool, null for the sequential policy
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Applies a stream pipeline to the items, with a parallel stream running in
+     * the pool if the work size is large enough
+     * @param items
+     * @param workSize - the number of characters processed by the stage
+     * @param pipeline
+     * @return the result of the pipeline
+     */
+    public <T, R> R apply(Collection<T> items, long workSize, Function<Stream<T>, R> pipeline) {
+        if (!isParallel(workSize)) {
+            return pipeline.apply(items.stream());
+        }
+        return pool.submit(() -> pipeline.apply(items.parallelStream())).join();
+    }
+}
@@ -1,19 +1,30 @@
 package rake4j.core;
 
+import rake4j.core.index.ConcurrentIndex;
+import rake4j.core.index.DocumentIndexer;
 import rake4j.core.index.Index;
+import rake4j.core.index.SegmentedIndex;
 import rake4j.core.model.Document;
 
 /**
  * User: Danyang
  * Date: 1/6/2015
  * Time: 20:16
+ *
+ * Adds analyzed documents to an index. With a {@link ConcurrentIndex} or a
+ * {@link SegmentedIndex} and a {@link RakeAnalyzer}, documents can be added from several threads at once;
+ * other analyzers are bound to the loaded document and are used by one thread
+ * at a time.
  */
 public class IndexWriter {
     private Analyzer analyzer;
-    private Index index;
+    private DocumentIndexer index;
     private float percentage;
 
-    public IndexWriter(Index index, Analyzer analyzer, float percentage) {
+    /**
+     * @param index - e.g. an {@link Index}, or a {@link SegmentedIndex} which flushes and merges its segments on disk
+     */
+    public IndexWriter(DocumentIndexer index, Analyzer analyzer, float percentage) {
         this.analyzer = analyzer;
         this.percentage = percentage;
         this.index = index;
@@ -24,8 +35,14 @@ public class IndexWriter {
     }
 
     void addDocument(Document doc, Analyzer analyzer) {
-        analyzer.loadDocument(doc);
-        analyzer.run();
+        if (analyzer instanceof RakeAnalyzer) {
+            ((RakeAnalyzer) analyzer).run(doc);
+        } else {
+            synchronized (analyzer) {
+                analyzer.loadDocument(doc);
+                analyzer.run();
+            }
+        }
         index.processDoc(doc, percentage);
     }
 }
\ No newline at end of file
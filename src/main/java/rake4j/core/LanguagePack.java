@@ -0,0 +1,104 @@
+package rake4j.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The stop word and punctuation resources of a language, compiled into a
+ * {@link RakeConfig} on first use.
+ *
+ * For the routing of {@link LanguagePacks}, a pack also has a character trigram
+ * profile, taken from its stop words: they are the most frequent words of the
+ * language, so a text shares more trigrams with the stop words of its own
+ * language. The profile is built from the word list as read, so routing
+ * compiles nothing, and the tables of a pack are only built by {@link #getConfig()}.
+ */
+public final class LanguagePack {
+    private final String language;
+    private final String stopWordResource;
+    private final String punctuationResource;
+    private volatile RakeConfig config;
+    private volatile TrigramSet trigrams;
+
+    /**
+     * @param language - the name of the pack, e.g. "en"
+     * @param stopWordResource - a stop word file on the classpath
+     * @param punctuationResource - a punctuation file on the classpath, one character per line, or null
+     */
+    public LanguagePack(String language, String stopWordResource, String punctuationResource) {
+        this.language = language;
+        this.stopWordResource = stopWordResource;
+        this.punctuationResource = punctuationResource;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getStopWordResource() {
+        return stopWordResource;
+    }
+
+    public String getPunctuationResource() {
+        return punctuationResource;
+    }
+
+    /**
+     * @return the configuration of the pack, compiled on first use
+     */
+    public RakeConfig getConfig() {
+        RakeConfig config = this.config;
+        if (config == null) {
+            synchronized (this) {
+                config = this.config;
+                if (config == null) {
+                    List<String> punctuation = punctuationResource == null ? Collections.emptyList()
+                            : read(punctuationResource);
+                    config = new RakeConfig(StopWordRegistry.stopWords(stopWordResource), punctuation, Collections.emptyList());
+                    this.config = config;
+                }
+            }
+        }
+        return config;
+    }
+
+    /**
+     * @return true if the configuration has been compiled
+     */
+    public boolean isLoaded() {
+        return config != null;
+    }
+
+    TrigramSet getTrigrams() {
+        TrigramSet trigrams = this.trigrams;
+        if (trigrams == null) {
+            synchronized (this) {
+                trigrams = this.trigrams;
+                if (trigrams == null) {
+                    trigrams = TrigramSet.of(read(stopWordResource));
+                    this.trigrams = trigrams;
+                }
+            }
+        }
+        return trigrams;
+    }
+
+    @Override
+    public String toString() {
+        return language;
+    }
+
+    private static List<String> read(String resource) {
+        try (InputStream in = LanguagePack.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Resource not found");
+            }
+            return RakeConfig.readStopWords(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Error loading RAKE stopWordList from: " + resource, ex);
+        }
+    }
+}
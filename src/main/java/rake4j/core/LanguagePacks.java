@@ -0,0 +1,115 @@
+package rake4j.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of {@link LanguagePack}s, which routes texts to the pack of their
+ * language.
+ *
+ * Registering a pack reads nothing; its configuration is compiled when it is
+ * first used, so a feed only pays for the languages it contains. The language
+ * is guessed from the character trigrams of the beginning of the text, as the
+ * most likely pack if the trigrams of a pack's stop words are equally likely and
+ * the others have the probability {@value #UNSEEN}. The first registered pack is
+ * the fallback.
+ */
+public final class LanguagePacks {
+    /**
+     * The number of chars of a text used to guess its language
+     */
+    public static final int SAMPLE_LENGTH = 1024;
+
+    /**
+     * The probability of a trigram which is not in the profile of a language
+     */
+    private static final double UNSEEN = 1e-6;
+
+    private static class DefaultsHolder {
+        static final LanguagePacks DEFAULTS = new LanguagePacks()
+                .register(new LanguagePack("en", "SmartStopListEn.txt", null));
+    }
+
+    private final List<LanguagePack> packs = new CopyOnWriteArrayList<>();
+    private final Map<String, LanguagePack> byLanguage = new ConcurrentHashMap<>();
+
+    /**
+     * @return the bundled packs: "en" with SmartStopListEn.txt, the stop words of {@link RakeConfig#defaults()}
+     */
+    public static LanguagePacks defaults() {
+        return DefaultsHolder.DEFAULTS;
+    }
+
+    /**
+     * @param pack - replaces the pack of the same language
+     * @return this
+     */
+    public synchronized LanguagePacks register(LanguagePack pack) {
+        LanguagePack previous = byLanguage.put(pack.getLanguage(), pack);
+        if (previous != null) {
+            packs.set(packs.indexOf(previous), pack);
+        } else {
+            packs.add(pack);
+        }
+        return this;
+    }
+
+    /**
+     * @return the pack of the language, or null
+     */
+    public LanguagePack get(String language) {
+        return byLanguage.get(language);
+    }
+
+    public List<LanguagePack> getPacks() {
+        return packs;
+    }
+
+    /**
+     * @return the pack of the guessed language of the text, null if there is no pack
+     */
+    public LanguagePack route(CharSequence text) {
+        if (packs.isEmpty()) {
+            return null;
+        }
+        LanguagePack best = packs.get(0);
+        if (packs.size() == 1) {
+            return best;
+        }
+        long[] trigrams = new long[SAMPLE_LENGTH + 1];
+        int[] count = new int[1];
+        TrigramSet.forEach(text, 0, Math.min(text.length(), SAMPLE_LENGTH), trigram -> trigrams[count[0]++] = trigram);
+
+        double bestScore = 0;
+        for (LanguagePack pack : packs) {
+            TrigramSet set = pack.getTrigrams();
+            int hits = 0;
+            for (int i = 0; i < count[0]; i++) {
+                if (set.contains(trigrams[i])) {
+                    hits++;
+                }
+            }
+            // the log likelihood ratio against a text of unseen trigrams only
+            double score = hits * Math.log(1.0 / (Math.max(1, set.size()) * UNSEEN));
+            if (score > bestScore) {
+                bestScore = score;
+                best = pack;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the configuration of the guessed language of the text
+     * @throws IllegalStateException if there is no pack
+     */
+    public RakeConfig configFor(CharSequence text) {
+        LanguagePack pack = route(text);
+        if (pack == null) {
+            throw new IllegalStateException("No language pack registered");
+        }
+        return pack.getConfig();
+    }
+}
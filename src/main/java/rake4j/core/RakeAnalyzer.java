@@ -3,12 +3,17 @@ package rake4j.core;
 import io.deepreader.java.commons.util.Displayer;
 import io.deepreader.java.commons.util.IOHandler;
 import io.deepreader.java.commons.util.Sorter;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import rake4j.core.analysis.en.KStemmer;
+import rake4j.core.analysis.Adjoiner;
+import rake4j.core.analysis.CandidateScanner;
+import rake4j.core.analysis.PhraseTable;
+import rake4j.core.analysis.Spans;
+import rake4j.core.analysis.Stemmer;
+import rake4j.core.analysis.TopK;
+import rake4j.core.analysis.WordStats;
+import rake4j.core.analysis.en.SharedKStemmer;
+import rake4j.core.analysis.en.StemCache;
 import rake4j.core.model.Document;
 import rake4j.core.model.Term;
 
@@ -20,50 +25,112 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
 
+/**
+ * RAKE keyword extraction.
+ *
+ * The settings are kept in an immutable {@link RakeConfig}, the setters replace
+ * it with a modified copy. The scratch tables of an analysis live in a
+ * per-thread workspace, so {@link #extract(CharSequence)} can be called
+ * concurrently on a shared instance. Reconfiguring publishes a new configuration
+ * atomically, see {@link #updateConfig(UnaryOperator)}, and each extraction runs
+ * with the configuration it started with.
+ * {@link #run()} and the other Document based methods are bound to the loaded
+ * document and are not thread-safe.
+ */
 public class RakeAnalyzer extends Analyzer {
-    private List<String> stopWordList = new ArrayList<>();
     transient private final Logger logger = LoggerFactory.getLogger(this.getClass());
-    private List<Pattern> regexList = new ArrayList<>();
-    private Pattern stopWordPat ;
-    private List<String> punctList = new ArrayList<>();
-    private int minNumberLetters = 1;
-    private int minWordsForPhrase = 1;
-    private KStemmer stemmer = new KStemmer();
-    
+    private final AtomicReference<RakeConfig> config = new AtomicReference<>();
+
+    /**
+     * Stems of the words seen by all analyzers
+     */
+    private static final StemCache STEM_CACHE = new StemCache(1 << 16);
+
+    /**
+     * One Kstem stemmer for all analyzers and threads, unless the configuration has another
+     */
+    private static final SharedKStemmer STEMMER = new SharedKStemmer(STEM_CACHE);
+
+    /**
+     * Per-thread scratch tables, reused from one analysis to the next
+     */
+    private static final class Workspace {
+        final Adjoiner adjoiner = new Adjoiner();
+        final PhraseTable phraseTable = new PhraseTable();
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
     public RakeAnalyzer() throws URISyntaxException {
         super(true, "RAKE");
         this.init();
     }
 
+    /**
+     * @param config - the configuration, which is never modified
+     */
+    public RakeAnalyzer(RakeConfig config) {
+        super(true, "RAKE");
+        this.config.set(config);
+    }
+
+    /**
+     * @return the stem cache shared by all analyzers, e.g. for its hit and miss counts
+     */
+    public static StemCache getStemCache() {
+        return STEM_CACHE;
+    }
+
+    public RakeConfig getConfig() {
+        return config.get();
+    }
+
+    /**
+     * Publishes a new configuration, extractions already running keep the one they started with
+     */
+    public void setConfig(RakeConfig config) {
+        this.config.set(config);
+    }
+
+    /**
+     * Atomically replaces the configuration by a modified copy, e.g. to reload the
+     * stop words of a live analyzer:
+     * <pre>rake.updateConfig(c -&gt; c.withStopWords(stopWords, punctuation));</pre>
+     * The copy is built in the calling thread, extractions are never blocked and
+     * those already running keep the configuration they started with.
+     * @param update - side effect free, it is called again if another update wins the race
+     * @return the new configuration
+     */
+    public RakeConfig updateConfig(UnaryOperator<RakeConfig> update) {
+        return config.updateAndGet(update);
+    }
+
     /**
      * @param pStopWords - a list of stopWords
      */
     public void loadStopWords(List<String> pStopWords) {
-        stopWordList = pStopWords;
+        config.updateAndGet(c -> c == null ? new RakeConfig(pStopWords) : c.withStopWords(pStopWords));
     }
 
     /**
      * @param pLoc - the location of the file where the stopwords are
      */
     public void loadStopWords(InputStream pLoc) {
-        List<String> stops = new ArrayList<>();
         try {
-            // List<String> lines = Files.readAllLines(pLoc, StandardCharsets.UTF_8);
-            List<String> lines  = IOUtils.readLines(pLoc, StandardCharsets.UTF_8);
-            for (String line : lines) {
-                line = line.trim();
-                if(line.charAt(0)!='#') {
-                    for(String word: line.split("\\s+"))
-                        stops.add(word);
-                }
-            }
-            this.loadStopWords(stops);
+            this.loadStopWords(RakeConfig.readStopWords(pLoc));
         } catch (IOException ex) {
             logger.error("Error loading RAKE stopWordList from: " + pLoc, ex);
         }
@@ -78,29 +145,34 @@ public class RakeAnalyzer extends Analyzer {
         Pattern pat = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
         return pat;
     }
-    
-    private List<String> separateToWords(String text, int minWordReturnSize) {
-        String splitter = "[^a-zA-Z0-9_\\+/]";
-        List<String> words = new ArrayList<>();
-        for(String word: text.split(splitter)) {
-            word = word.trim().toLowerCase();
-            if(word.length()>=minWordReturnSize && !word.equals("") && !isNumber(word)) {
-                words.add(word);
-            }
-        }
-        return words;
-    }
-    
+
     List<String> splitToSentences(String text) {
-        String splitter = "[\\.!?,:;\\t\"\'\\(\\)\\\\\\n@=~&\\+]+|\\s\\-(\\s)?|(\\s)?\\-\\s";
-        return Arrays.asList(text.split(splitter));
+        char[] chars = text.toCharArray();
+        Spans sentences = new Spans();
+        CandidateScanner.splitSentences(chars, chars.length, sentences);
+        List<String> sentenceList = new ArrayList<>(sentences.size());
+        for(int i=0; i<sentences.size(); i++) {
+            sentenceList.add(sentences.toString(chars, i));
+        }
+        return sentenceList;
     }
 
     Map<Integer, String> splitToSentencesWithOffsets(String text) {
-        List<String> splitTexts = splitToSentences(text);
-        return getOffsetsOfSplitString(text, splitTexts, 0);
+        char[] chars = text.toCharArray();
+        Spans sentences = new Spans();
+        CandidateScanner.splitSentences(chars, chars.length, sentences);
+        Map<Integer, String> offset2item = new HashMap<>();
+        for(int i=0; i<sentences.size(); i++) {
+            offset2item.put(sentences.start(i), sentences.toString(chars, i));
+        }
+        return offset2item;
     }
 
+    /**
+     * Recovers offsets by searching the text again, which is ambiguous for repeated substrings.
+     * The analysis works on exact spans instead, see {@link CandidateScanner}
+     */
+    @Deprecated
     Map<Integer, String> getOffsetsOfSplitString(String text, List<String> splitStrings, int initialOffset) {
         List<Integer> offsets = new ArrayList<>();
         int offset = 0;
@@ -123,14 +195,17 @@ public class RakeAnalyzer extends Analyzer {
     }
 
     /**
-     * As this method uses Regex for candidate generation, custom regex
-     * expresions could be added using this method (uses Java Pattern/Matcher
-     * mechanism)
+     * Custom regex expressions could be added using this method, their matches
+     * split the candidate phrases further (uses Java Pattern/Matcher mechanism)
      *
      * @param pat
      */
     public void addCustomRegex(Pattern pat) {
-        regexList.add(pat);
+        config.updateAndGet(c -> {
+            List<Pattern> splitters = new ArrayList<>(c.getSplitters());
+            splitters.add(pat);
+            return c.withSplitters(splitters);
+        });
     }
 
     /**
@@ -141,15 +216,14 @@ public class RakeAnalyzer extends Analyzer {
      * @param pPunt - the string list to be added
      */
     public void loadPunctStopWord(List<String> pPunt) {
-        punctList = pPunt;
-
+        config.updateAndGet(c -> c.withPunctuation(pPunt));
     }
-    
+
     /**
      * This method works better with a list of punctuation stop list, for
      * example for english, spanish and in general in latin based languages the
      * list could be (.,/{}[];:)
-     * 
+     *
      * Notice: the escapes are automatically added
      * @param pLoc - the location of the file where the stopwords are
      */
@@ -169,264 +243,160 @@ public class RakeAnalyzer extends Analyzer {
         }
     }
 
-    private Pattern buildPunctStopWordRegex(List<String> pPunctStop) {
-        StringBuilder sb = new StringBuilder();
-        for (String string : pPunctStop) {
-            sb.append("\\").append(string.trim()).append("|");
-        }
-        String pattern = sb.substring(0, sb.length() - 1);
-        Pattern pat = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-        return pat;
+    Spans generatePhraseSpans(char[] text) {
+        return generatePhraseSpans(config.get(), text);
     }
 
-    private List<String> generateCandidateKeywords(List<String> sentenceList, List<Pattern> stopwordPattern) {
-        List<String> phraseList = new ArrayList<>();
-        StringBuffer sb = new StringBuffer();
-        for (String s : sentenceList) {
-            for (Pattern pat : stopwordPattern) {
-                Matcher matcher = pat.matcher(s.trim());
-                while (matcher.find()) {
-                    matcher.appendReplacement(sb, "|");
-                }
-                matcher.appendTail(sb);
-                if (sb.length() > 0) {
-                    s = sb.toString();
-                }
-                sb = new StringBuffer();
-            }
-            
-            List<String> phrases = Arrays.asList(s.split("\\|"));
-            phraseList.addAll(phrases.parallelStream().filter(phrase -> phrase.trim().length()>0).filter(phrase -> phrase.length() > 0).map(String::trim).collect(Collectors.toList()));
-        }
-        return phraseList;
-    }
-
-    Map<Integer, String> generateCandidateKeywords(Map<Integer, String> sentenceList, List<Pattern> regexList) {
-        Map<Integer, String> phraseList = new HashMap<>();
-        StringBuffer sb = new StringBuffer();
-        Iterator itr = sentenceList.entrySet().iterator();
-        while(itr.hasNext()) {
-            Map.Entry entry = (Map.Entry) itr.next();
-            Integer initialOffset = (Integer) entry.getKey();
-            String s = (String) entry.getValue();
-
-            for (Pattern pat: regexList) {
-                Matcher matcher = pat.matcher(s.trim());
-                while (matcher.find()) {
-                    matcher.appendReplacement(sb, "|");
-                }
-                matcher.appendTail(sb);
-                if (sb.length() > 0) {
-                    s = sb.toString();
-                }
-                sb = new StringBuffer();
-            }
-
-            List<String> phrases = Arrays.asList(s.split("\\|"));
-            phrases = phrases.parallelStream().filter(phrase -> phrase.trim().length()>0).map(String::trim).collect(Collectors.toList());
-            Map<Integer, String> subPhraseList = getOffsetsOfSplitString((String) entry.getValue(), phrases, initialOffset);
-            phraseList.putAll(subPhraseList);
-        }
-        return phraseList;
-    }
-
-    Map<Integer, String> adjoinKeywords(Map<Integer, String> phraseList, Pattern stopwordPattern, String text) {
-        SortedSet<Integer> keys = new TreeSet<>(phraseList.keySet());
-        boolean adjoined = false;
-        Map<String, List<Pair<Integer, Integer>>> candidates = new HashMap<>();
-
-        Iterator itr = keys.iterator();
-        if(!itr.hasNext())
-            return phraseList;
-
-        Integer i;
-        Integer j = (Integer) itr.next();
-        String interior;
-        while(itr.hasNext()) {
-            i = j;
-            j = (Integer) itr.next();
-            int interior_start = i+phraseList.get(i).length();
-            if(interior_start>j) {
-                logger.error("Overlapping index when adjoining keywords: " + phraseList.get(i) + " & " + phraseList.get(j));
-                continue;
-            }
-            interior = text.substring(interior_start, j);
-            List<String> tokens = Arrays.asList(interior.split("\\s+"));
-            if(tokens.parallelStream().map(
-                    token -> stopwordPattern.matcher(token).replaceAll("")).allMatch(
-                    token -> token.trim().length() == 0)
-                    ) {
-                logger.trace(interior);
-                String candidate = text.substring(i, j+phraseList.get(j).length()).trim();
-                if(!candidates.containsKey(candidate)) {
-                    candidates.put(candidate, new ArrayList<>());
-                }
-                candidates.get(candidate).add(new ImmutablePair<>(i, j));
-            }
-        }
-
-        for(Map.Entry<String, List<Pair<Integer, Integer>>> e: candidates.entrySet()) {
-            if(e.getValue().size()>=2) {
-                adjoined = true;
-                for(Pair<Integer, Integer> p: e.getValue()) {
-                    if(phraseList.containsKey(p.getLeft())) {
-                        phraseList.put(p.getLeft(), e.getKey());
-                        phraseList.remove(p.getRight());
-                    }
-                }
-            }
-        }
-        if(adjoined) {  // recursive
-            phraseList = adjoinKeywords(phraseList, stopwordPattern, text);
-        }
-        return phraseList;
+    private static Spans generatePhraseSpans(RakeConfig config, char[] text) {
+        Spans phrases = new Spans(text.length / 16);
+        config.getScanner().scan(text, text.length, phrases);
+        return phrases;
     }
 
     /**
-     * Interface KStemming Algorithm
-     * Stemming will not change the offset information
-     * @param phraseList
+     * Candidate phrases with keywords that contain interior stop words adjoined
+     * @param text
      * @return
      */
-    private Map<Integer, String> stem(Map<Integer, String> phraseList) {
-        Map<Integer, String> ret = new HashMap<>();
-        for(Map.Entry<Integer, String> e: phraseList.entrySet()) {
-            String phrase = e.getValue();
-            List<String> stemmedWords = new ArrayList<>();
-            for(String w: phrase.split("\\s+")) {
-                try {
-                    stemmedWords.add(this.stemmer.stem(w));
-                }
-                catch (ArrayIndexOutOfBoundsException ex) {
-                    logger.warn(Displayer.display(ex));
-                    stemmedWords.add(w);
-                }
-            }
-            phrase = stemmedWords.stream().collect(Collectors.joining(" "));
-            ret.put(e.getKey(), phrase);
-        }
-        return ret;
-    }
-
-    private Map<String, Float> calculateWordScores(List<String> phraseList) {
-        Map<String, Integer> wordFrequency = new HashMap<>();
-        Map<String, Integer> wordDegree = new HashMap<>();
-        
-        for (String phrase : phraseList) {
-            List<String> wordlist = separateToWords(phrase, minNumberLetters);
-            int wordlistlength = wordlist.size();
-            int wordlistdegree = wordlistlength-1;
-            for (String word : wordlist) {
-                if (!wordFrequency.containsKey(word)) {
-                    wordFrequency.put(word, 1);
-                } else {
-                    int freq = wordFrequency.get(word)+1;
-                    wordFrequency.put(word, freq);
-                }
+    Spans adjoinKeywords(char[] text) {
+        return adjoinKeywords(config.get(), WORKSPACE.get(), text);
+    }
 
-                
-                if (!wordDegree.containsKey(word)) {
-                    wordDegree.put(word, wordlistdegree);
-                } else {
-                    int deg = wordDegree.get(word)+wordlistdegree;
-                    wordDegree.put(word, deg);
-                }
-            }
-        }
-        for (Map.Entry<String, Integer> entry : wordDegree.entrySet()) {
-            entry.setValue(entry.getValue() + wordFrequency.get(entry.getKey()));
-        }
+    private static Spans adjoinKeywords(RakeConfig config, Workspace workspace, char[] text) {
+        Spans phrases = new Spans(text.length / 16);
+        Adjoiner.Sequence sequence = new Adjoiner.Sequence(text, phrases);
+        config.getScanner().scan(text, text.length, sequence);
+        workspace.adjoiner.adjoin(sequence, config.getMaxAdjoinDepth());
+        return phrases;
+    }
 
-        Map<String, Float> wordScore = new HashMap<>();
-        for (Map.Entry<String, Integer> entry : wordFrequency.entrySet()) {
-            wordScore.put(entry.getKey(), wordDegree.get(entry.getKey()) / (wordFrequency.get(entry.getKey()) * 1.0f));
-        }
-        return wordScore;
+    /**
+     * Tokenizes the phrases once, all scoring stages work on the table
+     * @param text
+     * @param phrases
+     * @param stemming - whether the phrase texts are stemmed
+     * @return the table of the workspace of the calling thread
+     */
+    PhraseTable buildPhraseTable(char[] text, Spans phrases, boolean stemming) {
+        return buildPhraseTable(config.get(), WORKSPACE.get(), text, phrases, stemming);
     }
 
-    private List<Term> generateCandidateKeywordScores(List<String> phraseList, Map<String, Float> wordScore) {
-        List<Term> termList = new ArrayList<>();
-        for (String phrase : phraseList) {
-            List<String> words = separateToWords(phrase, minNumberLetters);
-            float score = 0.0f;
-            for (String word : words) {
-                score += wordScore.get(word);
-            }
-            termList.add(new Term(phrase, score));
-        }
-        return termList;
+    private PhraseTable buildPhraseTable(RakeConfig config, Workspace workspace, char[] text, Spans phrases, boolean stemming) {
+        workspace.phraseTable.build(text, phrases, stemming ? stemmer(config.getStemmer() != null ? config.getStemmer() : STEMMER) : null, config.getMinNumberLetters());
+        return workspace.phraseTable;
     }
 
-    private Map<Integer, String> filteredByLength(Map<Integer, String> phraseList, int minWords) {
-        return phraseList.entrySet()
-                .parallelStream()
-                .filter(e -> e.getValue().split("\\s+").length>=minWords)
-                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
+    /**
+     * Interface KStemming Algorithm
+     * Stemming will not change the offset information
+     * @param stemmer
+     * @return the stemmer, leaving the words it fails on as they are
+     */
+    private Stemmer stemmer(Stemmer stemmer) {
+        return (src, off, len, out) -> {
+            try {
+                return stemmer.stem(src, off, len, out);
+            }
+            catch (ArrayIndexOutOfBoundsException ex) {
+                logger.warn(Displayer.display(ex));
+                out.set(src, off, len);
+                return false;
+            }
+        };
     }
 
-    private List<String> filteredByLength(List<String> phraseList, int minWords) {
-        return phraseList.parallelStream()
-                .filter(e -> e.split("\\s+").length>=minWords)
-                .collect(Collectors.toList());
+    /**
+     * @param table
+     * @return the word statistics of the table, with the scores computed
+     */
+    WordStats calculateWordScores(PhraseTable table) {
+        WordStats wordStats = table.getWords();
+        int[] wordIds = table.wordIds();
+        for (int p = 0; p < table.size(); p++) {
+            wordStats.count(wordIds, table.wordsStart(p), table.wordsEnd(p));
+        }
+        wordStats.score();
+        return wordStats;
     }
 
-    private Map<Integer, Term> generateCandidateKeywordScores(Map<Integer, String> phraseList, Map<String, Float> wordScore) {
-        Map<Integer, Term> termList = new HashMap<>();
-        for (Map.Entry entry: phraseList.entrySet()) {
-            List<String> words = separateToWords((String) entry.getValue(), minNumberLetters);
-            float score = 0.0f;
-            for (String word : words) {
-                score += wordScore.get(word);
-            }
-            termList.put((Integer) entry.getKey(), new Term((String) entry.getValue(), score));
+    private static float phraseScore(PhraseTable table, int p, WordStats wordScore) {
+        int[] wordIds = table.wordIds();
+        float score = 0.0f;
+        for (int i = table.wordsStart(p); i < table.wordsEnd(p); i++) {
+            score += wordScore.score(wordIds[i]);
         }
-        return termList;
+        return score;
     }
 
     /**
      * called after loading, just before run
+     * Restores the bundled stop word list, keeping the other settings
      */
     public void init() throws URISyntaxException {
-        this.loadStopWords(this.getClass().getClassLoader().getResourceAsStream("SmartStopListEn.txt"));
-        
-        if (stopWordList.isEmpty()) {
-            logger.error("The method " + this.getName() + " requires a StopWordList to build the candidate list");
-            return;
-        }
-        stopWordPat = buildStopWordRegex(stopWordList);
-        regexList.add(stopWordPat);
-        
-        if (!punctList.isEmpty()) {
-            Pattern pat2 = buildPunctStopWordRegex(punctList);
-            regexList.add(pat2);
-        }
+        RakeConfig defaults = RakeConfig.defaults();
+        config.updateAndGet(config -> {
+            if (config == null) {
+                return defaults;
+            } else if (config.getPunctuation().isEmpty() && config.getSplitters().isEmpty()) {
+                return defaults.withMinNumberLetters(config.getMinNumberLetters())
+                        .withMinWordsForPhrase(config.getMinWordsForPhrase())
+                        .withMaxAdjoinDepth(config.getMaxAdjoinDepth())
+                        .withStemmer(config.getStemmer())
+                        .withStemming(config.isStemming())
+                        .withExecutionPolicy(config.getExecutionPolicy());
+            } else {
+                return config.withStopWords(defaults.getStopWords());
+            }
+        });
     }
 
+    /**
+     * Candidate generation does not use this regex any more, it is compiled on demand
+     */
     public Pattern getStopWordPat() {
-        return stopWordPat;
+        List<String> stopWords = config.get().getStopWords();
+        return stopWords.isEmpty() ? null : buildStopWordRegex(stopWords);
     }
 
     public void runWithoutOffset() {
-        List<String> sentenceList = splitToSentences(doc.getText().toLowerCase());
-        List<String> phraseList = generateCandidateKeywords(sentenceList, regexList);
-        Map<String, Float> wordScore = calculateWordScores(phraseList);
-        phraseList = filteredByLength(phraseList, minWordsForPhrase);
-        List<Term> keywordCandidates = generateCandidateKeywordScores(phraseList, wordScore);
+        RakeConfig config = this.config.get();
+        char[] chars = doc.getText().toLowerCase().toCharArray();
+        PhraseTable table = buildPhraseTable(config, WORKSPACE.get(), chars, generatePhraseSpans(config, chars), false);
+        WordStats wordScore = calculateWordScores(table);
+        List<Term> keywordCandidates = new ArrayList<>();
+        for (int p = 0; p < table.size(); p++) {
+            if (table.tokenCount(p) >= config.getMinWordsForPhrase()) {
+                keywordCandidates.add(new Term(table.text(p), phraseScore(table, p, wordScore)));
+            }
+        }
         Comparator<? super Term> cmp = (o1, o2) -> o1.getScore() > o2.getScore() ? -1 : o1.getScore() == o2.getScore() ? 0 : 1;
-        List<Term> sortedKeywords = keywordCandidates.parallelStream().sorted(cmp).distinct().collect(toList());
+        List<Term> sortedKeywords = config.getExecutionPolicy().apply(keywordCandidates, chars.length,
+                candidates -> candidates.sorted(cmp).distinct().collect(toList()));
         doc.setTermList(sortedKeywords);
     }
 
     @Override
     public void run() {
-        String text = doc.getText().toLowerCase();
-        Map<Integer, String> sentenceList = splitToSentencesWithOffsets(text);
-        Map<Integer, String> phraseList = generateCandidateKeywords(sentenceList, regexList);
-        phraseList = adjoinKeywords(phraseList, stopWordPat, text);
-        phraseList = stem(phraseList);
-        Map<String, Float> wordScore = calculateWordScores(new ArrayList<>(phraseList.values()));
-        phraseList = filteredByLength(phraseList, minWordsForPhrase);
-        Map<Integer, Term> keywordCandidates = generateCandidateKeywordScores(phraseList, wordScore);
+        run(doc);
+    }
+
+    /**
+     * Same as {@link #run()} on the given document instead of the loaded one,
+     * so it can be called concurrently
+     * @param doc - receives the term map
+     */
+    public void run(Document doc) {
+        RakeConfig config = this.config.get();
+        Workspace workspace = WORKSPACE.get();
+        char[] chars = doc.getText().toLowerCase().toCharArray();
+        PhraseTable table = buildPhraseTable(config, workspace, chars, adjoinKeywords(config, workspace, chars), config.isStemming());
+        WordStats wordScore = calculateWordScores(table);
+        Map<Integer, Term> keywordCandidates = new HashMap<>();
+        for (int p = 0; p < table.size(); p++) {
+            if (table.tokenCount(p) >= config.getMinWordsForPhrase()) {
+                keywordCandidates.put(table.start(p), new Term(table.text(p), phraseScore(table, p, wordScore)));
+            }
+        }
         TreeMap<Integer, Term> sortedKeywords = Sorter.sortByValue(keywordCandidates, new Sorter.ValueComparator<Integer, Term>(keywordCandidates) {
             @Override
             public int compare(Integer a, Integer b) {
@@ -443,6 +413,236 @@ public class RakeAnalyzer extends Analyzer {
         // top k keywords is processed in indexing phase
     }
 
+    /**
+     * Same analysis as {@link #run()}, but only the k best distinct terms are
+     * selected, with a bounded heap instead of sorting every candidate.
+     * Equal scores are ordered by first occurrence, the offsets of all
+     * occurrences are set on the terms.
+     * @param k - the maximum number of terms
+     * @return the terms, best first, also set as the term list of the document
+     */
+    public List<Term> runTopK(int k) {
+        return runTopK(k, Float.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param k - the maximum number of terms, Integer.MAX_VALUE to keep all above the threshold
+     * @param minScore - terms scoring below are dropped
+     * @return the terms, best first, also set as the term list of the document
+     * @see #runTopK(int)
+     */
+    public List<Term> runTopK(int k, float minScore) {
+        List<Term> terms = extract(config.get(), doc.getText(), k, minScore);
+        doc.setTermList(terms);
+        return terms;
+    }
+
+    /**
+     * Thread-safe extraction, nothing but the per-thread workspace is modified
+     * @param text
+     * @return the distinct terms, best first, with the offsets of all their occurrences
+     */
+    public List<Term> extract(CharSequence text) {
+        return extract(config.get(), text, Integer.MAX_VALUE, Float.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param text
+     * @param k - the maximum number of terms
+     * @return the k best distinct terms, see {@link #runTopK(int)}
+     */
+    public List<Term> extract(CharSequence text, int k) {
+        return extract(config.get(), text, k, Float.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param text
+     * @param k - the maximum number of terms, Integer.MAX_VALUE to keep all above the threshold
+     * @param minScore - terms scoring below are dropped
+     * @return the k best distinct terms, see {@link #runTopK(int)}
+     */
+    public List<Term> extract(CharSequence text, int k, float minScore) {
+        return extract(config.get(), text, k, minScore);
+    }
+
+    /**
+     * Extracts the terms of many documents, in parallel if the execution policy
+     * of the configuration allows it for their total size
+     * @param docs
+     * @return the terms of each document, see {@link #extract(CharSequence)}, in the order of the documents
+     */
+    public List<List<Term>> extractAll(Collection<Document> docs) {
+        return extractAll(docs, Integer.MAX_VALUE, config.get().getExecutionPolicy());
+    }
+
+    /**
+     * @param docs
+     * @param k - the maximum number of terms per document
+     * @param pool - the pool running the extraction, every worker uses its own workspace
+     * @return the k best terms of each document, in the order of the documents
+     */
+    public List<List<Term>> extractAll(Collection<Document> docs, int k, ForkJoinPool pool) {
+        return extractAll(docs, k, ExecutionPolicy.parallel(pool, 0));
+    }
+
+    /**
+     * @param docs
+     * @param k - the maximum number of terms per document
+     * @param policy - decides whether the documents are fanned out, by their total number of characters
+     * @return the k best terms of each document, in the order of the documents
+     */
+    public List<List<Term>> extractAll(Collection<Document> docs, int k, ExecutionPolicy policy) {
+        RakeConfig config = this.config.get();
+        Document[] documents = docs.toArray(new Document[docs.size()]);
+        // filled in place by the tasks, each writing its own positions
+        List<List<Term>> results = new ArrayList<>(Collections.nCopies(documents.length, null));
+        long workSize = 0;
+        for (Document doc : documents) {
+            workSize += doc.getText().length();
+        }
+        if (documents.length > 1 && policy.isParallel(workSize)) {
+            int batchSize = Math.max(1, documents.length / (policy.getPool().getParallelism() * 8));
+            policy.getPool().invoke(new ExtractTask(config, documents, results, 0, documents.length, k, batchSize));
+        } else {
+            new ExtractTask(config, documents, results, 0, documents.length, k, documents.length).compute();
+        }
+        return results;
+    }
+
+    /**
+     * Splits a range of documents in halves until the batch size is reached
+     */
+    private final class ExtractTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RakeConfig config;
+        private final Document[] documents;
+        private final List<List<Term>> results;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final int batchSize;
+
+        ExtractTask(RakeConfig config, Document[] documents, List<List<Term>> results, int from, int to, int k, int batchSize) {
+            this.config = config;
+            this.documents = documents;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, extract(config, documents[i].getText(), k, Float.NEGATIVE_INFINITY));
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ExtractTask(config, documents, results, from, mid, k, batchSize),
+                        new ExtractTask(config, documents, results, mid, to, k, batchSize));
+            }
+        }
+    }
+
+    /**
+     * Extracts the terms on the given executor, so that the analysis does not
+     * run on the caller thread nor on the common pool. Cancelling the future
+     * stops the analysis at the next stage.
+     * @param doc
+     * @param executor
+     * @return the terms of the document, see {@link #extract(CharSequence)}
+     */
+    public CompletableFuture<List<Term>> extractAsync(Document doc, Executor executor) {
+        return extractAsync(doc, Integer.MAX_VALUE, executor);
+    }
+
+    /**
+     * @param doc
+     * @param k - the maximum number of terms
+     * @param executor
+     * @return the k best terms of the document
+     * @see #extractAsync(Document, Executor)
+     */
+    public CompletableFuture<List<Term>> extractAsync(Document doc, int k, Executor executor) {
+        RakeConfig config = this.config.get();
+        CompletableFuture<List<Term>> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(extract(config, doc.getText(), k, Float.NEGATIVE_INFINITY, future::isDone));
+                } catch (CancellationException ex) {
+                    // cancelled between two stages, the future is completed already
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private List<Term> extract(RakeConfig config, CharSequence text, int k, float minScore) {
+        return extract(config, text, k, minScore, () -> false);
+    }
+
+    /**
+     * @param cancelled - checked between the stages
+     * @throws CancellationException when cancelled
+     */
+    private List<Term> extract(RakeConfig config, CharSequence text, int k, float minScore, BooleanSupplier cancelled) {
+        Workspace workspace = WORKSPACE.get();
+        checkCancelled(cancelled);
+        char[] chars = text.toString().toLowerCase().toCharArray();
+        Spans phrases = adjoinKeywords(config, workspace, chars);
+        checkCancelled(cancelled);
+        PhraseTable table = buildPhraseTable(config, workspace, chars, phrases, config.isStemming());
+        checkCancelled(cancelled);
+        WordStats wordScore = calculateWordScores(table);
+        checkCancelled(cancelled);
+        return selectTopK(table, wordScore, k, minScore, config.getMinWordsForPhrase());
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    private static List<Term> selectTopK(PhraseTable table, WordStats wordScore, int k, float minScore, int minWordsForPhrase) {
+        TopK top = new TopK(k);
+        BitSet seen = new BitSet(table.textCount());
+        for (int p = 0; p < table.size(); p++) {
+            if (table.tokenCount(p) < minWordsForPhrase || seen.get(table.textId(p))) {
+                continue;
+            }
+            seen.set(table.textId(p));
+            float score = phraseScore(table, p, wordScore);
+            if (score >= minScore) {
+                top.offer(p, score, p);
+            }
+        }
+
+        int[] best = top.drain();
+        int[] selected = new int[table.textCount()];
+        Arrays.fill(selected, -1);
+        List<Term> terms = new ArrayList<>(best.length);
+        for (int i = 0; i < best.length; i++) {
+            selected[table.textId(best[i])] = i;
+            terms.add(new Term(table.text(best[i]), phraseScore(table, best[i], wordScore)));
+        }
+        for (int p = 0; p < table.size(); p++) {
+            int i = selected[table.textId(p)];
+            if (i >= 0) {
+                terms.get(i).getOffsets().add(table.start(p));
+            }
+        }
+        return terms;
+    }
+
     public static void run(String path) throws Exception {
         String text = IOHandler.read(path);
         RakeAnalyzer analyzer = new RakeAnalyzer();
@@ -453,34 +653,30 @@ public class RakeAnalyzer extends Analyzer {
         System.out.println(doc.termListToString(0.5));
     }
 
-    /**
-     * is number
-     * @param string
-     * @return
-     */
-    private  boolean isNumber(String string) {
-        try {
-            Double.parseDouble(string);
-        }
-        catch (NumberFormatException e) {
-            return false;
-        }
-        return true;
-    }
-    
     public int getMinNumberLetters() {
-        return minNumberLetters;
+        return config.get().getMinNumberLetters();
     }
 
     public void setMinNumberLetters(int minNumberLetters) {
-        this.minNumberLetters = minNumberLetters;
+        config.updateAndGet(c -> c.withMinNumberLetters(minNumberLetters));
     }
 
     public int getMinWordsForPhrase() {
-        return minWordsForPhrase;
+        return config.get().getMinWordsForPhrase();
     }
 
     public void setMinWordsForPhrase(int minWordsForPhrase) {
-        this.minWordsForPhrase = minWordsForPhrase;
+        config.updateAndGet(c -> c.withMinWordsForPhrase(minWordsForPhrase));
+    }
+
+    public int getMaxAdjoinDepth() {
+        return config.get().getMaxAdjoinDepth();
+    }
+
+    /**
+     * @param maxAdjoinDepth - how many times adjoined keywords may be adjoined again, 0 disables adjoining
+     */
+    public void setMaxAdjoinDepth(int maxAdjoinDepth) {
+        config.updateAndGet(c -> c.withMaxAdjoinDepth(maxAdjoinDepth));
     }
 }
@@ -0,0 +1,252 @@
+package rake4j.core;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rake4j.core.analysis.CandidateScanner;
+import rake4j.core.analysis.Stemmer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable RAKE configuration: stop words, punctuation, custom patterns, the
+ * length limits, the stemmer and the execution policy, with the candidate scanner compiled once.
+ *
+ * The with* methods return a modified copy, the scanner is only rebuilt when
+ * the stop words, the punctuation or the patterns change, and the compiled stop
+ * words come from the {@link StopWordRegistry}. A configuration can be shared
+ * between threads.
+ */
+public final class RakeConfig {
+    private static final Logger logger = LoggerFactory.getLogger(RakeConfig.class);
+
+    private static class DefaultsHolder {
+        static final RakeConfig DEFAULTS = new RakeConfig(StopWordRegistry.stopWords("SmartStopListEn.txt"));
+    }
+
+    private final StopWordProfile stopWords;
+    private final List<String> punctuation;
+    private final List<Pattern> splitters;
+    private final CandidateScanner scanner;
+    private final int minNumberLetters;
+    private final int minWordsForPhrase;
+    private final int maxAdjoinDepth;
+    private final boolean stemming;
+    private final Stemmer stemmer;
+    private final ExecutionPolicy executionPolicy;
+
+    /**
+     * @param stopWords - a list of stop words
+     */
+    public RakeConfig(List<String> stopWords) {
+        this(stopWords, Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * @param stopWords - a list of stop words
+     * @param punctuation - single character punctuation stop words
+     * @param splitters - custom patterns whose matches split the candidate phrases
+     */
+    public RakeConfig(List<String> stopWords, List<String> punctuation, List<Pattern> splitters) {
+        this(StopWordProfile.of(StopWordRegistry.intern(stopWords)), copy(punctuation), copy(splitters), null, 1, 1, Integer.MAX_VALUE, true, null, ExecutionPolicy.parallel());
+    }
+
+    private RakeConfig(StopWordProfile stopWords, List<String> punctuation, List<Pattern> splitters, CandidateScanner scanner,
+                       int minNumberLetters, int minWordsForPhrase, int maxAdjoinDepth, boolean stemming,
+                       Stemmer stemmer, ExecutionPolicy executionPolicy) {
+        if (stopWords.getSet().size() == 0) {
+            logger.error("RAKE requires a StopWordList to build the candidate list");
+        }
+        this.stopWords = stopWords;
+        this.punctuation = punctuation;
+        this.splitters = splitters;
+        this.scanner = scanner != null ? scanner
+                : new CandidateScanner(stopWords.getSet(), punctChars(punctuation), splitters);
+        this.minNumberLetters = minNumberLetters;
+        this.minWordsForPhrase = minWordsForPhrase;
+        this.maxAdjoinDepth = maxAdjoinDepth;
+        this.stemming = stemming;
+        this.stemmer = stemmer;
+        this.executionPolicy = executionPolicy;
+    }
+
+    /**
+     * @return the configuration with the bundled SmartStopListEn.txt, loaded once
+     */
+    public static RakeConfig defaults() {
+        return DefaultsHolder.DEFAULTS;
+    }
+
+    /**
+     * Reads a stop word file: whitespace separated words, lines starting with # are comments
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static List<String> readStopWords(InputStream in) throws IOException {
+        List<String> stops = new ArrayList<>();
+        for (String line : IOUtils.readLines(in, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && line.charAt(0) != '#') {
+                for (String word : line.split("\\s+"))
+                    stops.add(word);
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * The punctuation stop words are single characters
+     */
+    private static char[] punctChars(List<String> pPunctStop) {
+        StringBuilder sb = new StringBuilder();
+        for (String string : pPunctStop) {
+            string = string.trim();
+            if (string.length() == 1) {
+                sb.append(string.charAt(0));
+            } else {
+                logger.warn("Ignoring punctuation stop word which is not a single character: " + string);
+            }
+        }
+        return sb.toString().toCharArray();
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    public RakeConfig withStopWords(List<String> stopWords) {
+        return new RakeConfig(StopWordProfile.of(StopWordRegistry.intern(stopWords)), punctuation, splitters, null, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * Replaces the stop words and the punctuation together, compiling the scanner once
+     */
+    public RakeConfig withStopWords(List<String> stopWords, List<String> punctuation) {
+        return new RakeConfig(StopWordProfile.of(StopWordRegistry.intern(stopWords)), copy(punctuation), splitters, null, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param stopWords - shared base stop words with a per-tenant delta
+     */
+    public RakeConfig withStopWords(StopWordProfile stopWords) {
+        return new RakeConfig(stopWords, punctuation, splitters, null, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * Adds and removes a few stop words, sharing the compiled base stop words
+     * @param added - the words to add
+     * @param removed - the words to remove
+     */
+    public RakeConfig withStopWordOverlay(List<String> added, List<String> removed) {
+        return withStopWords(stopWords.overlay(added, removed));
+    }
+
+    public RakeConfig withPunctuation(List<String> punctuation) {
+        return new RakeConfig(stopWords, copy(punctuation), splitters, null, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    public RakeConfig withSplitters(List<Pattern> splitters) {
+        return new RakeConfig(stopWords, punctuation, copy(splitters), null, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param minNumberLetters - words shorter than this do not count for the scores
+     */
+    public RakeConfig withMinNumberLetters(int minNumberLetters) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param minWordsForPhrase - phrases with fewer whitespace separated words are dropped
+     */
+    public RakeConfig withMinWordsForPhrase(int minWordsForPhrase) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param maxAdjoinDepth - how many times adjoined keywords may be adjoined again, 0 disables adjoining
+     */
+    public RakeConfig withMaxAdjoinDepth(int maxAdjoinDepth) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param stemming - whether the keywords are stemmed
+     */
+    public RakeConfig withStemming(boolean stemming) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * Enables stemming with the given stemmer, e.g. {@link rake4j.core.analysis.en.PluralStemmer}
+     * for cheap plural removal or {@link Stemmer#NONE} to only normalize the whitespace
+     * @param stemmer - must be thread-safe, null for the Kstem stemmer shared by the analyzers
+     */
+    public RakeConfig withStemmer(Stemmer stemmer) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, true, stemmer, executionPolicy);
+    }
+
+    /**
+     * @param executionPolicy - decides which stages run in parallel, {@link ExecutionPolicy#parallel()} by default
+     */
+    public RakeConfig withExecutionPolicy(ExecutionPolicy executionPolicy) {
+        return new RakeConfig(stopWords, punctuation, splitters, scanner, minNumberLetters, minWordsForPhrase, maxAdjoinDepth, stemming, stemmer, executionPolicy);
+    }
+
+    /**
+     * @return the stop words, built from the profile if it has a delta
+     */
+    public List<String> getStopWords() {
+        return stopWords.getStopWords();
+    }
+
+    public StopWordProfile getStopWordProfile() {
+        return stopWords;
+    }
+
+    public List<String> getPunctuation() {
+        return punctuation;
+    }
+
+    public List<Pattern> getSplitters() {
+        return splitters;
+    }
+
+    public CandidateScanner getScanner() {
+        return scanner;
+    }
+
+    public int getMinNumberLetters() {
+        return minNumberLetters;
+    }
+
+    public int getMinWordsForPhrase() {
+        return minWordsForPhrase;
+    }
+
+    public int getMaxAdjoinDepth() {
+        return maxAdjoinDepth;
+    }
+
+    public boolean isStemming() {
+        return stemming;
+    }
+
+    /**
+     * @return the stemmer, or null for the default Kstem stemmer
+     */
+    public Stemmer getStemmer() {
+        return stemmer;
+    }
+
+    public ExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+}
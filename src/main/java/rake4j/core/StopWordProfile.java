@@ -0,0 +1,127 @@
+package rake4j.core;
+
+import rake4j.core.analysis.StopWordSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stop words made of a shared base list, e.g. SmartStopListEn.txt, and a small
+ * delta of added and removed words, as used for per-tenant configurations.
+ *
+ * The base list and its compiled set come from the {@link StopWordRegistry} and
+ * are shared by all profiles on the same base; a profile only holds its delta
+ * and a {@link StopWordSet#overlay(List, List) overlay} compiled from it, so the
+ * memory grows with the deltas rather than with the number of profiles.
+ * Immutable.
+ */
+public final class StopWordProfile {
+    private final List<String> base;
+    private final List<String> added;
+    private final List<String> removed;
+    private final StopWordSet set;
+
+    private StopWordProfile(List<String> base, List<String> added, List<String> removed, StopWordSet set) {
+        this.base = base;
+        this.added = added;
+        this.removed = removed;
+        this.set = set;
+    }
+
+    /**
+     * @param stopWords - the base list, which is not copied and must not be modified
+     */
+    public static StopWordProfile of(List<String> stopWords) {
+        return new StopWordProfile(stopWords, Collections.emptyList(), Collections.emptyList(),
+                StopWordRegistry.compile(stopWords));
+    }
+
+    /**
+     * @param resource - a stop word file on the classpath
+     */
+    public static StopWordProfile ofResource(String resource) {
+        return of(StopWordRegistry.stopWords(resource));
+    }
+
+    /**
+     * Adds and removes words, on top of the delta of this profile
+     * @param added - the words to add, the base words among them cancel their removal
+     * @param removed - the words to remove, unless added
+     * @return a profile on the same base
+     */
+    public StopWordProfile overlay(List<String> added, List<String> removed) {
+        StopWordSet baseSet = StopWordRegistry.compile(base);
+        Set<String> adding = normalize(added);
+        Set<String> newRemoved = new LinkedHashSet<>(this.removed);
+        for (String word : normalize(removed)) {
+            if (baseSet.contains(word)) {
+                newRemoved.add(word);
+            }
+        }
+        newRemoved.removeAll(adding);
+
+        Set<String> newAdded = new LinkedHashSet<>(this.added);
+        newAdded.removeAll(normalize(removed));
+        for (String word : adding) {
+            if (!baseSet.contains(word)) {
+                newAdded.add(word);
+            }
+        }
+        if (newAdded.isEmpty() && newRemoved.isEmpty()) {
+            return of(base);
+        }
+        List<String> addedList = Collections.unmodifiableList(new ArrayList<>(newAdded));
+        List<String> removedList = Collections.unmodifiableList(new ArrayList<>(newRemoved));
+        return new StopWordProfile(base, addedList, removedList, baseSet.overlay(addedList, removedList));
+    }
+
+    /**
+     * @return the stop words: the base list without the removed words, followed
+     * by the added words, built on each call unless there is no delta
+     */
+    public List<String> getStopWords() {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return base;
+        }
+        Set<String> removing = new HashSet<>(removed);
+        List<String> words = new ArrayList<>(base.size() + added.size());
+        for (String word : base) {
+            if (!removing.contains(word.trim().toLowerCase())) {
+                words.add(word);
+            }
+        }
+        words.addAll(added);
+        return Collections.unmodifiableList(words);
+    }
+
+    public List<String> getBase() {
+        return base;
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the compiled stop words
+     */
+    public StopWordSet getSet() {
+        return set;
+    }
+
+    private static Set<String> normalize(List<String> words) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String word : words) {
+            normalized.add(word.trim().toLowerCase());
+        }
+        return normalized;
+    }
+}
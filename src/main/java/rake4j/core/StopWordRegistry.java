@@ -0,0 +1,109 @@
+package rake4j.core;
+
+import rake4j.core.analysis.StopWordSet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide registry of stop word lists and their compiled sets.
+ *
+ * A classpath resource is read once per name, compiled on first use, and both
+ * are kept for the life of the process, so configurations with the same stop words share one
+ * immutable {@link StopWordSet} however many analyzers are built from them.
+ * Lists given by callers, e.g. per request or reloaded from an edited file,
+ * are shared while some configuration still uses them and are dropped by the
+ * garbage collector afterwards, so their number does not need to be bounded.
+ * A caller list equal to a resource gets the set of the resource.
+ */
+public final class StopWordRegistry {
+    private static final ConcurrentMap<String, List<String>> resources = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<String>, List<String>> lists = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<String>, StopWordSet> sets = new ConcurrentHashMap<>();
+    // caller lists, weakly held by their interned list, which the configurations using them keep
+    private static final Map<List<String>, WeakReference<List<String>>> callerLists = new WeakHashMap<>();
+    private static final Map<List<String>, WeakReference<StopWordSet>> callerSets = new WeakHashMap<>();
+
+    private StopWordRegistry() {
+    }
+
+    /**
+     * @param resource - a stop word file on the classpath, e.g. SmartStopListEn.txt
+     * @return the unmodifiable stop words of the resource, read on first use
+     * @throws UncheckedIOException if the resource can not be read
+     */
+    public static List<String> stopWords(String resource) {
+        return resources.computeIfAbsent(resource, StopWordRegistry::read);
+    }
+
+    /**
+     * @param stopWords - a list of stop words
+     * @return an unmodifiable list equal to the given one, the same for every equal
+     * list as long as it is in use
+     */
+    public static List<String> intern(List<String> stopWords) {
+        List<String> list = lists.get(stopWords);
+        if (list != null) {
+            return list;
+        }
+        synchronized (callerLists) {
+            WeakReference<List<String>> ref = callerLists.get(stopWords);
+            list = ref != null ? ref.get() : null;
+            if (list == null) {
+                list = Collections.unmodifiableList(new ArrayList<>(stopWords));
+                callerLists.put(list, new WeakReference<>(list));
+            }
+            return list;
+        }
+    }
+
+    /**
+     * @param stopWords - a list of stop words
+     * @return the compiled set of the list, shared with every equal list as long as it is in use
+     */
+    public static StopWordSet compile(List<String> stopWords) {
+        List<String> resource = lists.get(stopWords);
+        if (resource != null) {
+            return sets.computeIfAbsent(resource, StopWordSet::compile);
+        }
+        List<String> list = intern(stopWords);
+        synchronized (callerSets) {
+            WeakReference<StopWordSet> ref = callerSets.get(list);
+            StopWordSet set = ref != null ? ref.get() : null;
+            if (set == null) {
+                set = StopWordSet.compile(list);
+                callerSets.put(list, new WeakReference<>(set));
+            }
+            return set;
+        }
+    }
+
+    /**
+     * @return the number of compiled sets of the resources, and of the caller lists not collected yet
+     */
+    public static int size() {
+        synchronized (callerSets) {
+            return sets.size() + callerSets.size();
+        }
+    }
+
+    private static List<String> read(String resource) {
+        try (InputStream in = StopWordRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Resource not found");
+            }
+            return lists.computeIfAbsent(Collections.unmodifiableList(RakeConfig.readStopWords(in)), key -> key);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Error loading RAKE stopWordList from: " + resource, ex);
+        }
+    }
+}
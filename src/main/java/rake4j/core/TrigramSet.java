@@ -0,0 +1,103 @@
+package rake4j.core;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of lowercased character trigrams of space padded words, e.g. " th",
+ * "the" and "he " for "the", packed into longs in an open-addressing table.
+ */
+final class TrigramSet {
+    private static final long EMPTY = 0;
+
+    private final long[] table;
+    private final int mask;
+    private final int size;
+
+    private TrigramSet(long[] table, int size) {
+        this.table = table;
+        this.mask = table.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @param words - e.g. stop words
+     */
+    static TrigramSet of(List<String> words) {
+        int length = 0;
+        for (String word : words) {
+            length += word.length() + 2;
+        }
+        long[] table = new long[Integer.highestOneBit(Math.max(4, length)) << 1];
+        int[] size = new int[1];
+        for (String word : words) {
+            forEach(word, 0, word.length(), trigram -> {
+                if (add(table, trigram)) {
+                    size[0]++;
+                }
+            });
+        }
+        return new TrigramSet(table, size[0]);
+    }
+
+    boolean contains(long trigram) {
+        for (int slot = hash(trigram) & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[slot] == trigram) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer with the trigrams of the words of text[from, to), words are runs of letters
+     */
+    static void forEach(CharSequence text, int from, int to, LongConsumer consumer) {
+        boolean inWord = false;
+        char a = ' ';
+        char b = ' ';
+        for (int i = from; i <= to; i++) {
+            char c = i < to ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                c = Character.toLowerCase(c);
+                if (inWord) {
+                    consumer.accept(pack(a, b, c));
+                    a = b;
+                } else {
+                    a = ' ';
+                    inWord = true;
+                }
+                b = c;
+            } else if (inWord) {
+                consumer.accept(pack(a, b, ' '));
+                inWord = false;
+            }
+        }
+    }
+
+    private static long pack(char a, char b, char c) {
+        return 1L << 48 | (long) a << 32 | (long) b << 16 | c;
+    }
+
+    private static boolean add(long[] table, long trigram) {
+        int mask = table.length - 1;
+        int slot = hash(trigram) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == trigram) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = trigram;
+        return true;
+    }
+
+    private static int hash(long trigram) {
+        long h = trigram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
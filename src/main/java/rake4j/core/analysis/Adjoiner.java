@@ -0,0 +1,120 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Adjoins keywords that contain interior stop words, e.g. "axis of evil".
+ *
+ * Two neighbouring phrases bridged only by stop words and whitespace are merged,
+ * together with the stop words, when the merged text occurs at least twice in
+ * the document. Each round is a linear pass over the phrase sequence which
+ * counts the bridged pairs in a hash table and merges the repeated ones from left
+ * to right; merged phrases take part in the next round, up to a maximum depth.
+ *
+ * Not thread-safe, an instance keeps its scratch tables for reuse.
+ */
+public final class Adjoiner {
+    /**
+     * Collects the phrases of a scan, and whether the gap to the previous phrase
+     * consists of whitespace and stop words only
+     */
+    public static final class Sequence implements CandidateScanner.Handler {
+        private final char[] text;
+        private final Spans phrases;
+        private final BitSet bridged = new BitSet();
+        private int cursor;
+        private boolean blocked;
+
+        public Sequence(char[] text, Spans phrases) {
+            this.text = text;
+            this.phrases = phrases;
+        }
+
+        @Override
+        public void phrase(int start, int end) {
+            bridged.set(phrases.size(), !blocked && isBlank(cursor, start));
+            phrases.add(start, end);
+            cursor = end;
+            blocked = false;
+        }
+
+        @Override
+        public void stopWord(int start, int end) {
+            blocked |= !isBlank(cursor, start);
+            cursor = end;
+        }
+
+        @Override
+        public void delimiter(int start, int end) {
+            blocked |= !isBlank(cursor, end);
+            cursor = end;
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!CandidateScanner.isSpace(text[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Spans getPhrases() {
+            return phrases;
+        }
+    }
+
+    private final SpanTable pairs = new SpanTable();
+    private int[] pairIds = new int[16];
+    private int[] counts = new int[16];
+
+    /**
+     * Merges the phrases of the sequence in place
+     * @param sequence
+     * @param maxDepth - the maximum number of rounds, 0 disables adjoining
+     */
+    public void adjoin(Sequence sequence, int maxDepth) {
+        char[] text = sequence.text;
+        Spans phrases = sequence.phrases;
+        BitSet bridged = sequence.bridged;
+        for (int depth = 0; depth < maxDepth; depth++) {
+            int n = phrases.size();
+            if (n > pairIds.length) {
+                pairIds = new int[Math.max(n, pairIds.length * 2)];
+            }
+            pairs.clear();
+            for (int j = 1; j < n; j++) {
+                if (bridged.get(j)) {
+                    int start = phrases.start(j - 1);
+                    int known = pairs.size();
+                    int id = pairs.add(text, start, phrases.end(j) - start);
+                    if (id == counts.length) {
+                        counts = Arrays.copyOf(counts, id * 2);
+                    }
+                    counts[id] = id == known ? 1 : counts[id] + 1;
+                    pairIds[j] = id;
+                }
+            }
+
+            boolean adjoined = false;
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                boolean bridgedToPrevious = bridged.get(i);
+                if (i + 1 < n && bridged.get(i + 1) && counts[pairIds[i + 1]] >= 2) {
+                    phrases.set(size, phrases.start(i), phrases.end(i + 1));
+                    i++;
+                    adjoined = true;
+                } else {
+                    phrases.set(size, phrases.start(i), phrases.end(i));
+                }
+                bridged.set(size++, bridgedToPrevious);
+            }
+            phrases.truncate(size);
+            bridged.clear(size, n);
+            if (!adjoined) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package rake4j.core.analysis;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass scanner generating RAKE candidate phrases.
+ *
+ * It walks the (lowercased) characters once and reproduces what used to be a
+ * chain of regular expressions: the sentence splitter
+ * <pre>[\.!?,:;\t"'\(\)\\\n@=~&amp;\+]+|\s\-(\s)?|(\s)?\-\s</pre>
+ * followed by the stop word alternation <pre>\bword(?![\w-])|...</pre>, the
+ * punctuation stop list, the custom patterns and the final split on "|".
+ * Sentence delimiters are classified by a lookup table and stop words by a hash
+ * lookup on the token, so the cost no longer grows with the stop list size.
+ *
+ * A scanner is immutable and can be shared between threads.
+ */
+public final class CandidateScanner {
+    /**
+     * Receives the spans found by {@link #scan}, in text order. All spans are [start, end).
+     */
+    public interface Handler {
+        /**
+         * A candidate phrase, already trimmed
+         */
+        void phrase(int start, int end);
+
+        /**
+         * A stop word separating two phrases
+         */
+        default void stopWord(int start, int end) {}
+
+        /**
+         * A sentence delimiter, a punctuation stop word, a '|' or a custom pattern match
+         */
+        default void delimiter(int start, int end) {}
+    }
+
+    private static final boolean[] SENTENCE_DELIMITERS = new boolean[128];
+    static {
+        for (char c : ".!?,:;\t\"'()\\\n@=~&+".toCharArray()) {
+            SENTENCE_DELIMITERS[c] = true;
+        }
+    }
+
+    private final StopWordSet stopWords;
+    private final boolean[] punctuation = new boolean[128];
+    private final Pattern[] splitters;
+
+    /**
+     * @param stopWords - the compiled stop words
+     * @param punctuation - additional single character phrase delimiters, may be empty
+     * @param splitters - custom patterns whose matches also delimit phrases, may be empty
+     */
+    public CandidateScanner(StopWordSet stopWords, char[] punctuation, List<Pattern> splitters) {
+        this.stopWords = stopWords;
+        this.punctuation['|'] = true;
+        for (char c : punctuation) {
+            if (c < 128) {
+                this.punctuation[c] = true;
+            }
+        }
+        this.splitters = splitters.toArray(new Pattern[splitters.size()]);
+    }
+
+    public StopWordSet getStopWords() {
+        return stopWords;
+    }
+
+    /**
+     * Scans text[0, length), the text is expected to be lowercased already
+     */
+    public void scan(char[] text, int length, Handler handler) {
+        int phraseStart = -1;
+        int phraseEnd = -1;
+        int i = 0;
+        while (i < length) {
+            char c = text[i];
+            int end = sentenceDelimiterEnd(text, i, length);
+            if (end < 0) {
+                end = stopWordEnd(text, i, length);
+                if (end > i) {
+                    if (phraseStart >= 0) {
+                        emit(text, phraseStart, phraseEnd, handler, 0);
+                        phraseStart = -1;
+                    }
+                    handler.stopWord(i, end);
+                    i = end;
+                    continue;
+                }
+                if (c < 128 && punctuation[c]) {
+                    end = i + 1;
+                }
+            }
+            if (end > i) {
+                if (phraseStart >= 0) {
+                    emit(text, phraseStart, phraseEnd, handler, 0);
+                    phraseStart = -1;
+                }
+                handler.delimiter(i, end);
+                i = end;
+                continue;
+            }
+            if (c > ' ') {  // String.trim() semantics
+                if (phraseStart < 0) {
+                    phraseStart = i;
+                }
+                phraseEnd = i + 1;
+            }
+            i++;
+        }
+        if (phraseStart >= 0) {
+            emit(text, phraseStart, phraseEnd, handler, 0);
+        }
+    }
+
+    /**
+     * Splits text[0, length) into untrimmed sentences, with the same pieces as
+     * String.split on the sentence delimiter regex (trailing empty sentences are dropped)
+     */
+    public static void splitSentences(char[] text, int length, Spans sentences) {
+        int first = sentences.size();
+        int from = 0;
+        int i = 0;
+        boolean split = false;
+        while (i < length) {
+            int end = sentenceDelimiterEnd(text, i, length);
+            if (end > i) {
+                sentences.add(from, i);
+                split = true;
+                from = end;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        sentences.add(from, length);
+        if (split) {
+            int size = sentences.size();
+            while (size > first && sentences.length(size - 1) == 0) size--;
+            sentences.truncate(size);
+        }
+    }
+
+    /**
+     * Applies the custom patterns in order, the pieces in between are trimmed again
+     */
+    private void emit(char[] text, int start, int end, Handler handler, int splitter) {
+        if (splitter == splitters.length) {
+            handler.phrase(start, end);
+            return;
+        }
+        Matcher matcher = splitters[splitter].matcher(CharBuffer.wrap(text, start, end - start));
+        int from = start;
+        while (matcher.find()) {
+            emitTrimmed(text, from, start + matcher.start(), handler, splitter + 1);
+            handler.delimiter(start + matcher.start(), start + matcher.end());
+            from = start + matcher.end();
+        }
+        emitTrimmed(text, from, end, handler, splitter + 1);
+    }
+
+    private void emitTrimmed(char[] text, int start, int end, Handler handler, int splitter) {
+        while (start < end && text[start] <= ' ') start++;
+        while (end > start && text[end - 1] <= ' ') end--;
+        if (start < end) {
+            emit(text, start, end, handler, splitter);
+        }
+    }
+
+    /**
+     * @return the end of the sentence delimiter starting at i, or -1
+     */
+    static int sentenceDelimiterEnd(char[] text, int i, int length) {
+        char c = text[i];
+        if (c < 128 && SENTENCE_DELIMITERS[c]) {
+            int j = i + 1;
+            while (j < length && text[j] < 128 && SENTENCE_DELIMITERS[text[j]]) j++;
+            return j;
+        }
+        if (isSpace(c) && i + 1 < length && text[i + 1] == '-') {
+            return i + 2 < length && isSpace(text[i + 2]) ? i + 3 : i + 2;
+        }
+        if (c == '-' && i + 1 < length && isSpace(text[i + 1])) {
+            return i + 2;
+        }
+        return -1;
+    }
+
+    /**
+     * Emulates \bword(?![\w-]) where the first matching alternative wins
+     * @return the end of the stop word starting at i, or -1
+     */
+    private int stopWordEnd(char[] text, int i, int length) {
+        boolean wordHere = isWordChar(text[i]);
+        boolean wordBefore = i > 0 && isWordChar(text[i - 1]);
+        if (wordHere == wordBefore || (!wordHere && stopWords.isRegular())) {
+            return -1;
+        }
+        int limit = Math.min(length, i + stopWords.maxLength());
+        int bestOrdinal = Integer.MAX_VALUE;
+        int bestEnd = -1;
+        for (int e = i + 1; e <= limit; e++) {
+            if (canEndAt(text, e, length)) {
+                int ordinal = stopWords.ordinal(text, i, e - i);
+                if (ordinal >= 0 && ordinal < bestOrdinal) {
+                    bestOrdinal = ordinal;
+                    bestEnd = e;
+                }
+            }
+            if (e < length && stopWords.isRegular() && !isWordChar(text[e])) {
+                break;  // regular stop words cannot extend any further
+            }
+        }
+        return bestEnd;
+    }
+
+    /**
+     * (?![\w-]), where a hyphen starting a sentence delimiter counts as the end of the sentence
+     */
+    private static boolean canEndAt(char[] text, int e, int length) {
+        if (e == length) {
+            return true;
+        }
+        char c = text[e];
+        if (c == '-') {
+            return e + 1 < length && isSpace(text[e + 1]);
+        }
+        return !((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_');
+    }
+
+    /**
+     * Word characters as seen by \b
+     */
+    static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * \s
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * @return false if the word contains a sentence delimiter or a '|', in which case it can never be matched
+     */
+    static boolean canOccurInSentence(String word) {
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == '|' || sentenceDelimiterEnd(chars, i, chars.length) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Intermediate representation of the candidate phrases of one document, built
+ * once and shared by the scoring stages.
+ *
+ * For every phrase it keeps the span in the text, the id of its (possibly
+ * stemmed) text, the number of whitespace separated tokens, and the ids of the
+ * words it contributes to the scores, stored back to back in a single int array.
+ * Word ids are the ordinals of {@link #getWords()}.
+ *
+ * Not thread-safe, meant to be reused for the next document.
+ */
+public final class PhraseTable {
+    private final WordStats words = new WordStats();
+    private final SpanTable texts = new SpanTable();
+    private String[] textStrings = new String[16];
+    private Spans spans;
+    private int size;
+    private int[] textIds = new int[16];
+    private int[] tokenCounts = new int[16];
+    private int[] wordOffsets = new int[17];
+    private int[] wordIds = new int[64];
+    private char[] buffer = new char[64];
+    private final StemOutput stem = new StemOutput();
+
+    /**
+     * @param text - the lowercased text
+     * @param phrases - the phrase spans
+     * @param stemmer - stems the tokens, or null to keep the phrase text as it is
+     * @param minWordLength - words shorter than this do not count for the scores
+     */
+    public void build(char[] text, Spans phrases, Stemmer stemmer, int minWordLength) {
+        words.clear();
+        texts.clear();
+        spans = phrases;
+        size = phrases.size();
+        if (size > textIds.length) {
+            textIds = new int[size];
+            tokenCounts = new int[size];
+            wordOffsets = new int[size + 1];
+        }
+        int wordCount = 0;
+        for (int p = 0; p < size; p++) {
+            int length = normalize(text, phrases.start(p), phrases.end(p), stemmer, p);
+            textIds[p] = texts.add(buffer, 0, length);
+            wordOffsets[p] = wordCount;
+
+            // words are separated by [^a-zA-Z0-9_\+/]
+            int i = 0;
+            while (i < length) {
+                while (i < length && !isWordChar(buffer[i])) i++;
+                int start = i;
+                while (i < length && isWordChar(buffer[i])) {
+                    if (buffer[i] >= 'A' && buffer[i] <= 'Z') {
+                        buffer[i] += 'a' - 'A';
+                    }
+                    i++;
+                }
+                if (i > start && i - start >= minWordLength && !isNumber(buffer, start, i - start)) {
+                    if (wordCount == wordIds.length) {
+                        wordIds = Arrays.copyOf(wordIds, wordCount * 2);
+                    }
+                    wordIds[wordCount++] = words.add(buffer, start, i - start);
+                }
+            }
+        }
+        wordOffsets[size] = wordCount;
+        if (texts.size() > textStrings.length) {
+            textStrings = new String[texts.size()];
+        } else {
+            Arrays.fill(textStrings, null);
+        }
+    }
+
+    /**
+     * Writes the text of phrase p into the buffer, with its tokens stemmed and
+     * joined by a single space if there is a stemmer
+     * @return the length of the text
+     */
+    private int normalize(char[] text, int start, int end, Stemmer stemmer, int p) {
+        int length = 0;
+        int tokens = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && CandidateScanner.isSpace(text[i])) i++;
+            if (i == end) {
+                break;
+            }
+            int tokenStart = i;
+            while (i < end && !CandidateScanner.isSpace(text[i])) i++;
+            tokens++;
+            if (stemmer != null) {
+                stemmer.stem(text, tokenStart, i - tokenStart, stem);
+                ensureBuffer(length + stem.length() + 1);
+                if (tokens > 1) {
+                    buffer[length++] = ' ';
+                }
+                System.arraycopy(stem.buffer(), 0, buffer, length, stem.length());
+                length += stem.length();
+            }
+        }
+        tokenCounts[p] = tokens;
+        if (stemmer == null) {
+            ensureBuffer(end - start);
+            System.arraycopy(text, start, buffer, 0, end - start);
+            length = end - start;
+        }
+        return length;
+    }
+
+    private void ensureBuffer(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '+' || c == '/';
+    }
+
+    /**
+     * Same as Double.parseDouble succeeding, which needs a digit for lowercased input
+     */
+    static boolean isNumber(char[] chars, int off, int len) {
+        boolean digit = false;
+        for (int i = off; i < off + len && !digit; i++) {
+            digit = chars[i] >= '0' && chars[i] <= '9';
+        }
+        if (!digit) {
+            return false;
+        }
+        try {
+            Double.parseDouble(new String(chars, off, len));
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of phrases
+     */
+    public int size() {
+        return size;
+    }
+
+    public int start(int p) {
+        return spans.start(p);
+    }
+
+    public int end(int p) {
+        return spans.end(p);
+    }
+
+    /**
+     * @return the number of whitespace separated tokens of phrase p
+     */
+    public int tokenCount(int p) {
+        return tokenCounts[p];
+    }
+
+    /**
+     * @return the id of the text of phrase p, equal texts have equal ids
+     */
+    public int textId(int p) {
+        return textIds[p];
+    }
+
+    public int textCount() {
+        return texts.size();
+    }
+
+    public String text(int p) {
+        int id = textIds[p];
+        if (textStrings[id] == null) {
+            textStrings[id] = texts.toString(id);
+        }
+        return textStrings[id];
+    }
+
+    /**
+     * @return the number of distinct words
+     */
+    public int wordCount() {
+        return words.size();
+    }
+
+    /**
+     * @return the distinct words, by id, with their statistics still to be counted
+     */
+    public WordStats getWords() {
+        return words;
+    }
+
+    /**
+     * The ids of the words of phrase p are wordIds()[wordsStart(p)] ... wordIds()[wordsEnd(p)-1]
+     */
+    public int wordsStart(int p) {
+        return wordOffsets[p];
+    }
+
+    public int wordsEnd(int p) {
+        return wordOffsets[p + 1];
+    }
+
+    public int[] wordIds() {
+        return wordIds;
+    }
+}
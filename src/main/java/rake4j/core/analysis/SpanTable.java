@@ -0,0 +1,116 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table assigning dense ordinals (0, 1, 2, ...) to distinct
+ * character sequences, looked up by slices of a char array.
+ *
+ * The characters are copied into a single pool, so neither the keys nor the
+ * lookups allocate per entry. Not thread-safe, meant to be reused after {@link #clear()}.
+ */
+public final class SpanTable {
+    private char[] pool = new char[256];
+    private int poolSize;
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int[] hashes = new int[16];
+    private int size;
+    private int[] slots = new int[32];  // ordinal + 1, 0 for empty
+    private int mask = slots.length - 1;
+
+    /**
+     * @return the ordinal of text[off, off+len), added if it was not in the table yet
+     */
+    public int add(char[] text, int off, int len) {
+        int hash = StopWordSet.hash(text, off, len);
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (hashes[entry - 1] == hash && equals(entry - 1, text, off, len)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int ordinal = size++;
+        if (ordinal == offsets.length) {
+            offsets = Arrays.copyOf(offsets, ordinal * 2);
+            lengths = Arrays.copyOf(lengths, ordinal * 2);
+            hashes = Arrays.copyOf(hashes, ordinal * 2);
+        }
+        if (poolSize + len > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+        }
+        System.arraycopy(text, off, pool, poolSize, len);
+        offsets[ordinal] = poolSize;
+        lengths[ordinal] = len;
+        hashes[ordinal] = hash;
+        poolSize += len;
+        slots[slot] = ordinal + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return ordinal;
+    }
+
+    /**
+     * @return the ordinal of text[off, off+len), or -1 if it is not in the table
+     */
+    public int find(char[] text, int off, int len) {
+        int hash = StopWordSet.hash(text, off, len);
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (hashes[entry - 1] == hash && equals(entry - 1, text, off, len)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int length(int ordinal) {
+        return lengths[ordinal];
+    }
+
+    public String toString(int ordinal) {
+        return new String(pool, offsets[ordinal], lengths[ordinal]);
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, 0);
+            size = 0;
+            poolSize = 0;
+        }
+    }
+
+    private boolean equals(int ordinal, char[] text, int off, int len) {
+        if (lengths[ordinal] != len) {
+            return false;
+        }
+        int base = offsets[ordinal];
+        for (int i = 0; i < len; i++) {
+            if (pool[base + i] != text[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = hashes[ordinal] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = ordinal + 1;
+        }
+    }
+}
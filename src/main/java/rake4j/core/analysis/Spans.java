@@ -0,0 +1,73 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of [start, end) character spans backed by primitive int arrays,
+ * kept in the order they were added.
+ */
+public final class Spans implements CandidateScanner.Handler {
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    public Spans() {
+        this(16);
+    }
+
+    public Spans(int capacity) {
+        starts = new int[Math.max(1, capacity)];
+        ends = new int[starts.length];
+    }
+
+    public void add(int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    @Override
+    public void phrase(int start, int end) {
+        add(start, end);
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return ends[i];
+    }
+
+    public int length(int i) {
+        return ends[i] - starts[i];
+    }
+
+    public void set(int i, int start, int end) {
+        starts[i] = start;
+        ends[i] = end;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drops the spans from index newSize on
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public String toString(char[] text, int i) {
+        return new String(text, starts[i], ends[i] - starts[i]);
+    }
+}
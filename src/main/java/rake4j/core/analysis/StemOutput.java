@@ -0,0 +1,54 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Caller-owned, reusable buffer receiving the result of a {@link Stemmer}, so
+ * that stemming does not create a String per token.
+ */
+public final class StemOutput {
+    private char[] buffer;
+    private int length;
+
+    public StemOutput() {
+        this(32);
+    }
+
+    public StemOutput(int capacity) {
+        buffer = new char[Math.max(1, capacity)];
+    }
+
+    /**
+     * @return the buffer, valid in [0, length())
+     */
+    public char[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void set(char[] src, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(src, off, buffer, 0, len);
+        length = len;
+    }
+
+    public void set(String src) {
+        ensureCapacity(src.length());
+        src.getChars(0, src.length(), buffer, 0);
+        length = src.length();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
@@ -0,0 +1,20 @@
+package rake4j.core.analysis;
+
+/**
+ * Stems single lowercased tokens given as char slices.
+ */
+public interface Stemmer {
+    /**
+     * Leaves every token as it is
+     */
+    Stemmer NONE = (src, off, len, out) -> {
+        out.set(src, off, len);
+        return false;
+    };
+
+    /**
+     * Writes the stem of src[off, off+len) into out, which holds the token itself if it is not stemmed
+     * @return false if the token was not stemmed
+     */
+    boolean stem(char[] src, int off, int len, StemOutput out);
+}
@@ -0,0 +1,188 @@
+package rake4j.core.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable, compiled set of stop words, looked up by character slices.
+ *
+ * Each stop word keeps the ordinal of its first occurrence in the source list,
+ * so that callers can reproduce the "first alternative wins" semantics of the
+ * regex alternation it replaces.
+ *
+ * An overlay, see {@link #overlay(List, List)}, adds and removes a few words
+ * on top of a shared base set without copying it: it holds only the delta and
+ * behaves like a set compiled from the base list without the removed words,
+ * followed by the added words.
+ */
+public final class StopWordSet {
+    private final char[][] keys;
+    private final int[] ordinals;
+    private final int mask;
+    private final int size;
+    private final int maxLength;
+    private final boolean regular;
+    private final int length;  // the length of the source list, base included
+    private final StopWordSet base;  // null unless an overlay
+    private final StopWordSet removed;  // the words removed from the base, null if none
+
+    private StopWordSet(List<String> words) {
+        this(words, null, null);
+    }
+
+    private StopWordSet(List<String> words, StopWordSet base, StopWordSet removed) {
+        this.base = base;
+        this.removed = removed;
+        int offset = base == null ? 0 : base.length;
+        length = offset + words.size();
+
+        int capacity = Integer.highestOneBit(Math.max(4, words.size() * 2) - 1) << 1;
+        keys = new char[capacity][];
+        ordinals = new int[capacity];
+        mask = capacity - 1;
+
+        int count = 0;
+        int longest = 0;
+        boolean allWordChars = true;
+        for (int ord = 0; ord < words.size(); ord++) {
+            String word = words.get(ord).trim().toLowerCase();
+            if (word.isEmpty() || !CandidateScanner.canOccurInSentence(word)) {
+                continue;  // could never match inside a sentence
+            }
+            char[] key = word.toCharArray();
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null && !equals(keys[slot], key, 0, key.length)) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                ordinals[slot] = offset + ord;
+                count++;
+                longest = Math.max(longest, key.length);
+                for (char c : key) {
+                    allWordChars &= CandidateScanner.isWordChar(c);
+                }
+            }
+        }
+        if (base == null) {
+            size = count;
+            maxLength = longest;
+            regular = allWordChars;
+        } else {
+            int active = base.size;
+            if (removed != null) {
+                for (char[] key : removed.keys) {
+                    if (key != null && base.ordinal(key, 0, key.length) >= 0 && ownOrdinal(key, 0, key.length) < 0) {
+                        active--;
+                    }
+                }
+            }
+            for (char[] key : keys) {
+                if (key != null && baseOrdinal(key, 0, key.length) < 0) {
+                    active++;
+                }
+            }
+            size = active;
+            maxLength = Math.max(longest, base.maxLength);
+            regular = allWordChars && base.regular;
+        }
+    }
+
+    /**
+     * Compiles a list of stop words, surrounding whitespace and case are ignored
+     * @param words
+     * @return
+     */
+    public static StopWordSet compile(List<String> words) {
+        return new StopWordSet(words);
+    }
+
+    /**
+     * @param added - the words to add
+     * @param removed - the words of this set to remove, unless added again
+     * @return an overlay sharing this set, which may be an overlay itself
+     */
+    public StopWordSet overlay(List<String> added, List<String> removed) {
+        List<String> addedWords = normalize(added);
+        List<String> removedWords = normalize(removed);
+        removedWords.removeAll(addedWords);
+        return new StopWordSet(added, this, removedWords.isEmpty() ? null : new StopWordSet(removedWords));
+    }
+
+    /**
+     * @return the list ordinal of the stop word text[off, off+len), or -1 if it is not a stop word
+     */
+    public int ordinal(char[] text, int off, int len) {
+        if (len > maxLength || len == 0) {
+            return -1;
+        }
+        int ordinal = baseOrdinal(text, off, len);
+        return ordinal >= 0 ? ordinal : ownOrdinal(text, off, len);
+    }
+
+    private int baseOrdinal(char[] text, int off, int len) {
+        if (base == null || (removed != null && removed.ordinal(text, off, len) >= 0)) {
+            return -1;
+        }
+        return base.ordinal(text, off, len);
+    }
+
+    private int ownOrdinal(char[] text, int off, int len) {
+        int slot = hash(text, off, len) & mask;
+        char[] key;
+        while ((key = keys[slot]) != null) {
+            if (equals(key, text, off, len)) {
+                return ordinals[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean contains(String word) {
+        return ordinal(word.toCharArray(), 0, word.length()) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return true if every stop word consists of word characters only
+     */
+    public boolean isRegular() {
+        return regular;
+    }
+
+    private static List<String> normalize(List<String> words) {
+        List<String> normalized = new ArrayList<>(words.size());
+        for (String word : words) {
+            normalized.add(word.trim().toLowerCase());
+        }
+        return normalized;
+    }
+
+    static int hash(char[] text, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + text[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(char[] key, char[] text, int off, int len) {
+        if (key.length != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (key[i] != text[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package rake4j.core.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Bounded selection of the k best ids by score, with a binary min-heap of at
+ * most k entries, O(n log k) for n offers.
+ *
+ * Ties are broken by rank, the lower rank wins, so the selection does not
+ * depend on the order of the offers when the ranks are distinct.
+ * Not thread-safe.
+ */
+public final class TopK {
+    private final int k;
+    private int[] ids;
+    private float[] scores;
+    private int[] ranks;
+    private int size;
+
+    /**
+     * @param k - the maximum number of ids kept
+     */
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        int capacity = Math.min(k, 16);
+        ids = new int[capacity];
+        scores = new float[capacity];
+        ranks = new int[capacity];
+    }
+
+    /**
+     * @return whether the id is kept, for now
+     */
+    public boolean offer(int id, float score, int rank) {
+        if (size < k) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(k, size * 2L);
+                ids = Arrays.copyOf(ids, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                ranks = Arrays.copyOf(ranks, capacity);
+            }
+            set(size, id, score, rank);
+            up(size++);
+            return true;
+        }
+        if (size == 0 || !worse(scores[0], ranks[0], score, rank)) {
+            return false;
+        }
+        set(0, id, score, rank);
+        down(0);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the heap
+     * @return the kept ids, best first
+     */
+    public int[] drain() {
+        int[] best = new int[size];
+        while (size > 0) {
+            best[size - 1] = ids[0];
+            size--;
+            if (size > 0) {
+                set(0, ids[size], scores[size], ranks[size]);
+                down(0);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return whether (score1, rank1) ranks below (score2, rank2)
+     */
+    private static boolean worse(float score1, int rank1, float score2, int rank2) {
+        return score1 < score2 || (score1 == score2 && rank1 > rank2);
+    }
+
+    private boolean worse(int i, int j) {
+        return worse(scores[i], ranks[i], scores[j], ranks[j]);
+    }
+
+    private void up(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void down(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && worse(child + 1, child)) {
+                child++;
+            }
+            if (!worse(child, i)) {
+                break;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void set(int i, int id, float score, int rank) {
+        ids[i] = id;
+        scores[i] = score;
+        ranks[i] = rank;
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        float score = scores[i];
+        int rank = ranks[i];
+        set(i, ids[j], scores[j], ranks[j]);
+        set(j, id, score, rank);
+    }
+}
@@ -0,0 +1,158 @@
+package rake4j.core.analysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * RAKE word statistics: an open-addressing word to ordinal table with parallel
+ * frequency, degree and score arrays, so counting neither boxes nor allocates
+ * map nodes.
+ *
+ * Not thread-safe, meant to be reused after {@link #clear()}.
+ */
+public final class WordStats {
+    private final SpanTable words = new SpanTable();
+    private int[] frequency = new int[64];
+    private int[] degree = new int[64];
+    private float[] score = new float[64];
+
+    /**
+     * @return the ordinal of the word text[off, off+len), added if it is new
+     */
+    public int add(char[] text, int off, int len) {
+        int known = words.size();
+        int ordinal = words.add(text, off, len);
+        if (ordinal == known) {
+            if (ordinal == frequency.length) {
+                frequency = Arrays.copyOf(frequency, ordinal * 2);
+                degree = Arrays.copyOf(degree, ordinal * 2);
+                score = Arrays.copyOf(score, ordinal * 2);
+            }
+            frequency[ordinal] = 0;
+            degree[ordinal] = 0;
+            score[ordinal] = 0.0f;
+        }
+        return ordinal;
+    }
+
+    /**
+     * @return the ordinal of the word, or -1 if it is unknown
+     */
+    public int ordinal(char[] text, int off, int len) {
+        return words.find(text, off, len);
+    }
+
+    /**
+     * Counts the words of one phrase, ordinals[from] ... ordinals[to-1]
+     */
+    public void count(int[] ordinals, int from, int to) {
+        int phraseDegree = to - from - 1;
+        for (int i = from; i < to; i++) {
+            frequency[ordinals[i]]++;
+            degree[ordinals[i]] += phraseDegree;
+        }
+    }
+
+    /**
+     * Computes the scores once all phrases are counted, score = (degree + frequency) / frequency
+     */
+    public void score() {
+        for (int w = 0; w < words.size(); w++) {
+            score[w] = (degree[w] + frequency[w]) / (frequency[w] * 1.0f);
+        }
+    }
+
+    public int size() {
+        return words.size();
+    }
+
+    public String word(int ordinal) {
+        return words.toString(ordinal);
+    }
+
+    public int frequency(int ordinal) {
+        return frequency[ordinal];
+    }
+
+    /**
+     * @return the summed degree of the word, excluding its frequency
+     */
+    public int degree(int ordinal) {
+        return degree[ordinal];
+    }
+
+    public float score(int ordinal) {
+        return score[ordinal];
+    }
+
+    public void clear() {
+        words.clear();
+    }
+
+    /**
+     * @return a read-only word to score view, valid until the statistics are cleared
+     */
+    public Map<String, Float> asMap() {
+        return new AbstractMap<String, Float>() {
+            @Override
+            public Float get(Object key) {
+                int ordinal = ordinalOf(key);
+                return ordinal < 0 ? null : score[ordinal];
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return ordinalOf(key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return words.size();
+            }
+
+            @Override
+            public Set<Entry<String, Float>> entrySet() {
+                return new AbstractSet<Entry<String, Float>>() {
+                    @Override
+                    public Iterator<Entry<String, Float>> iterator() {
+                        return new Iterator<Entry<String, Float>>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < words.size();
+                            }
+
+                            @Override
+                            public Entry<String, Float> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                int ordinal = next++;
+                                return new SimpleImmutableEntry<>(words.toString(ordinal), score[ordinal]);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return words.size();
+                    }
+                };
+            }
+        };
+    }
+
+    private int ordinalOf(Object key) {
+        if (!(key instanceof CharSequence)) {
+            return -1;
+        }
+        char[] chars = key.toString().toCharArray();
+        return words.find(chars, 0, chars.length);
+    }
+}
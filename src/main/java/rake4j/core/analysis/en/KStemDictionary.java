@@ -0,0 +1,225 @@
+package rake4j.core.analysis.en;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The KStem dictionary as a compact char table: all words in one char array,
+ * indexed by an open-addressing hash table of ints.
+ *
+ * It is generated by {@link KStemDictionaryBuilder} into the binary resource
+ * {@value #RESOURCE}, which is checked in next to this class, and loaded lazily
+ * by {@link #get()}. Without the resource it is built from the KStemData word
+ * lists, as it used to be. KStemData1 to KStemData8 are only kept for that
+ * fallback and as the source of the generator; the stemmers never read them
+ * when the resource is present.
+ * Immutable, and shared by all stemmers.
+ */
+final class KStemDictionary {
+    static final String RESOURCE = "kstem.dict";
+    private static final int MAGIC = 0x4B535444;  // "KSTD"
+    private static final int VERSION = 1;
+    private static final Logger logger = LoggerFactory.getLogger(KStemDictionary.class);
+
+    private static class Holder {
+        static final KStemDictionary DICTIONARY = load(RESOURCE);
+    }
+
+    private final char[] chars;
+    private final int[] offsets;  // word i is chars[offsets[i], offsets[i+1])
+    private final KStemmer.DictEntry[] entries;
+    private final int[] slots;  // word + 1, 0 for empty
+    private final int mask;
+
+    /**
+     * @param words - sorted
+     * @param entries - the entries of the words
+     */
+    private KStemDictionary(String[] words, KStemmer.DictEntry[] entries) {
+        int length = 0;
+        for (String word : words) {
+            length += word.length();
+        }
+        chars = new char[length];
+        offsets = new int[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            words[i].getChars(0, words[i].length(), chars, offsets[i]);
+            offsets[i + 1] = offsets[i] + words[i].length();
+        }
+        this.entries = entries;
+
+        int capacity = Integer.highestOneBit(Math.max(1, words.length)) << 2;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < words.length; i++) {
+            int slot = hash(chars, offsets[i], offsets[i + 1] - offsets[i]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * @return the dictionary, loaded on first use
+     */
+    static KStemDictionary get() {
+        return Holder.DICTIONARY;
+    }
+
+    /**
+     * @param dictionary - word to entry
+     */
+    static KStemDictionary of(Map<String, KStemmer.DictEntry> dictionary) {
+        String[] words = dictionary.keySet().toArray(new String[dictionary.size()]);
+        Arrays.sort(words);
+        KStemmer.DictEntry[] entries = new KStemmer.DictEntry[words.length];
+        for (int i = 0; i < words.length; i++) {
+            entries[i] = dictionary.get(words[i]);
+        }
+        return new KStemDictionary(words, entries);
+    }
+
+    /**
+     * @param resource - relative to this class
+     * @return the dictionary of the resource, or built from the word lists if it is missing or unreadable
+     */
+    static KStemDictionary load(String resource) {
+        try (InputStream in = KStemDictionary.class.getResourceAsStream(resource)) {
+            if (in != null) {
+                return read(in);
+            }
+            logger.info("No prebuilt " + resource + ", building the KStem dictionary from the word lists");
+        } catch (IOException ex) {
+            logger.warn("Error reading " + resource + ", building the KStem dictionary from the word lists", ex);
+        }
+        return of(KStemmer.initializeDictHash());
+    }
+
+    /**
+     * @return the entry of s[off, off+len), or null if it is not in the dictionary
+     */
+    KStemmer.DictEntry get(char[] s, int off, int len) {
+        int slot = hash(s, off, len) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (equals(entry - 1, s, off, len)) {
+                return entries[entry - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * Format: magic, version, the roots, the sorted words, and the entries of the
+     * words which have a root or are exceptions, by word index
+     */
+    void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        Map<String, Integer> rootIds = new HashMap<>();
+        List<String> roots = new ArrayList<>();
+        int special = 0;
+        for (KStemmer.DictEntry entry : entries) {
+            if (entry.root != null && !rootIds.containsKey(entry.root)) {
+                rootIds.put(entry.root, roots.size());
+                roots.add(entry.root);
+            }
+            if (entry.root != null || entry.exception) {
+                special++;
+            }
+        }
+        out.writeInt(roots.size());
+        for (String root : roots) {
+            out.writeUTF(root);
+        }
+
+        out.writeInt(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            out.writeUTF(new String(chars, offsets[i], offsets[i + 1] - offsets[i]));
+        }
+
+        out.writeInt(special);
+        for (int i = 0; i < entries.length; i++) {
+            KStemmer.DictEntry entry = entries[i];
+            if (entry.root != null || entry.exception) {
+                out.writeInt(i);
+                out.writeInt(entry.root == null ? -1 : rootIds.get(entry.root));
+                out.writeBoolean(entry.exception);
+            }
+        }
+        out.flush();
+    }
+
+    static KStemDictionary read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a KStem dictionary");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported KStem dictionary version " + version);
+        }
+
+        String[] roots = new String[in.readInt()];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = in.readUTF();
+        }
+
+        String[] words = new String[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readUTF();
+        }
+
+        KStemmer.DictEntry[] entries = new KStemmer.DictEntry[words.length];
+        Arrays.fill(entries, KStemmer.DictEntry.PLAIN);
+        int special = in.readInt();
+        for (int i = 0; i < special; i++) {
+            int word = in.readInt();
+            int root = in.readInt();
+            entries[word] = new KStemmer.DictEntry(root < 0 ? null : roots[root], in.readBoolean());
+        }
+        return new KStemDictionary(words, entries);
+    }
+
+    private boolean equals(int word, char[] s, int off, int len) {
+        int start = offsets[word];
+        if (offsets[word + 1] - start != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (chars[start + i] != s[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] s, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + s[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,34 @@
+package rake4j.core.analysis.en;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the binary KStem dictionary from the KStemData word lists. Rerun it
+ * after changing KStemData or the format of {@link KStemDictionary}, and check in
+ * the output:
+ * <pre>KStemDictionaryBuilder src/main/resources/rake4j/core/analysis/en/kstem.dict</pre>
+ */
+public final class KStemDictionaryBuilder {
+    private KStemDictionaryBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: KStemDictionaryBuilder <output file>");
+            System.exit(1);
+        }
+        Path path = Paths.get(args[0]);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        KStemDictionary dictionary = KStemDictionary.of(KStemmer.initializeDictHash());
+        try (OutputStream out = Files.newOutputStream(path)) {
+            dictionary.write(out);
+        }
+        System.out.println("Wrote " + dictionary.size() + " KStem dictionary entries to " + path);
+    }
+}
@@ -61,7 +61,6 @@ package rake4j.core.analysis.en;
  * Date: 2/1/2015
  * Time: 21:24
  */
-import org.apache.lucene.analysis.util.CharArrayMap;
 import org.apache.lucene.analysis.util.OpenStringBuilder;
 /**
  * <p>Title: Kstemmer</p>
@@ -69,12 +68,18 @@ import org.apache.lucene.analysis.util.OpenStringBuilder;
  * <p>Copyright: Copyright 2008, Luicid Imagination, Inc. </p>
  * <p>Copyright: Copyright 2003, CIIR University of Massachusetts Amherst (http://ciir.cs.umass.edu) </p>
  */
-import org.apache.lucene.util.Version;
+import java.util.HashMap;
+import java.util.Map;
+import rake4j.core.analysis.StemOutput;
+import rake4j.core.analysis.Stemmer;
 
 /**
  * This class implements the Kstem algorithm
+ *
+ * An instance keeps the word being stemmed in its fields and is not thread-safe,
+ * use a {@link SharedKStemmer} to stem from several threads.
  */
-public class KStemmer {
+public class KStemmer implements Stemmer {
     static private final int MaxWordLen = 50;
 
     static private final String[] exceptionWords = {"aide", "bathe", "caste",
@@ -228,9 +233,15 @@ public class KStemmer {
             "connally", "conner", "coors", "cummings", "curtis", "daedalus",
             "dionysus", "dobbs", "dolores", "edmonds"};
 
+    /**
+     * Immutable, so one entry can be shared by many words
+     */
     static class DictEntry {
-        boolean exception;
-        String root;
+        // the entry of the words which are their own stem
+        static final DictEntry PLAIN = new DictEntry(null, false);
+
+        final boolean exception;
+        final String root;
 
         DictEntry(String root, boolean isException) {
             this.root = root;
@@ -238,13 +249,9 @@ public class KStemmer {
         }
     }
 
-    private static final CharArrayMap<DictEntry> dict_ht = initializeDictHash();
+    private final KStemDictionary dict_ht = KStemDictionary.get();
 
-    /***
-     * caching off private int maxCacheSize; private CharArrayMap<String> cache =
-     * null; private static final String SAME = "SAME"; // use if stemmed form is
-     * the same
-     ***/
+    private final StemCache cache;
 
     private final OpenStringBuilder word = new OpenStringBuilder();
     private int j; /* index of final letter in stem (within word) */
@@ -254,11 +261,6 @@ public class KStemmer {
                   * word, use the method wordLength, which returns (k+1).
                   */
 
-    /***
-     * private void initializeStemHash() { if (maxCacheSize > 0) cache = new
-     * CharArrayMap<String>(maxCacheSize,false); }
-     ***/
-
     private char finalChar() {
         return word.charAt(k);
     }
@@ -281,11 +283,14 @@ public class KStemmer {
         else return (!isCons(index - 1));
     }
 
-    private static CharArrayMap<DictEntry> initializeDictHash() {
+    /**
+     * Builds the dictionary from the word lists, see {@link KStemDictionary} for the prebuilt one
+     */
+    static Map<String, DictEntry> initializeDictHash() {
         DictEntry defaultEntry;
         DictEntry entry;
 
-        CharArrayMap<DictEntry> d = new CharArrayMap<>(Version.LUCENE_CURRENT, 1000, false);
+        Map<String, DictEntry> d = new HashMap<>(60000);
         for (int i = 0; i < exceptionWords.length; i++) {
             if (!d.containsKey(exceptionWords[i])) {
                 entry = new DictEntry(exceptionWords[i], true);
@@ -316,7 +321,7 @@ public class KStemmer {
             }
         }
 
-        defaultEntry = new DictEntry(null, false);
+        defaultEntry = DictEntry.PLAIN;
 
         String[] array;
         array = KStemData1.data;
@@ -1358,7 +1363,20 @@ public class KStemmer {
         return;
     }
 
-    public KStemmer() {}
+    public KStemmer() {
+        this(null);
+    }
+
+    /**
+     * @param cache - caches the stems of the words which are not in the dictionary, may be shared, null for none
+     */
+    public KStemmer(StemCache cache) {
+        this.cache = cache;
+    }
+
+    public StemCache getCache() {
+        return cache;
+    }
 
     public String stem(String term) {
         boolean changed = stem(term.toCharArray(), term.length());
@@ -1366,6 +1384,28 @@ public class KStemmer {
         return asString();
     }
 
+    /**
+     * Stems src[off, off+len) without creating objects, unless the stem is new to the cache
+     * @param src - the lowercased token
+     * @param off
+     * @param len
+     * @param out - receives the stem, or the token itself if it is not stemmed
+     * @return true if changed
+     */
+    @Override
+    public boolean stem(char[] src, int off, int len, StemOutput out) {
+        if (!stem(src, off, len)) {
+            out.set(src, off, len);
+            return false;
+        }
+        if (result != null) {
+            out.set(result);
+        } else {
+            out.set(word.getArray(), 0, word.length());
+        }
+        return true;
+    }
+
     /**
      * Returns the result of the stem (assuming the word was changed) as a String.
      */
@@ -1407,6 +1447,10 @@ public class KStemmer {
      * Stems the text in the token. Returns true if changed.
      */
     boolean stem(char[] term, int len) {
+        return stem(term, 0, len);
+    }
+
+    private boolean stem(char[] term, int off, int len) {
 
         result = null;
 
@@ -1417,7 +1461,7 @@ public class KStemmer {
 
         // first check the stemmer dictionaries, and avoid using the
         // cache if it's in there.
-        DictEntry entry = dict_ht.get(term, 0, len);
+        DictEntry entry = dict_ht.get(term, off, len);
         if (entry != null) {
             if (entry.root != null) {
                 result = entry.root;
@@ -1426,19 +1470,20 @@ public class KStemmer {
             return false;
         }
 
-        /***
-         * caching off is normally faster if (cache == null) initializeStemHash();
-         *
-         * // now check the cache, before we copy chars to "word" if (cache != null)
-         * { String val = cache.get(term, 0, len); if (val != null) { if (val !=
-         * SAME) { result = val; return true; } return false; } }
-         ***/
+        // now check the cache, before we copy chars to "word"
+        if (cache != null) {
+            String val = cache.get(term, off, len);
+            if (val != null) {
+                result = val;
+                return true;
+            }
+        }
 
         word.reset();
         // allocate enough space so that an expansion is never needed
         word.reserve(len + 10);
         for (int i = 0; i < len; i++) {
-            char ch = term[i];
+            char ch = term[off + i];
             if (!isAlpha(ch)) return false; // don't stem
             // don't lowercase... it's a requirement that lowercase filter be
             // used before this stemmer.
@@ -1505,12 +1550,9 @@ public class KStemmer {
             result = entry.root; // may be null, which means that "word" is the stem
         }
 
-        /***
-         * caching off is normally faster if (cache != null && cache.size() <
-         * maxCacheSize) { char[] key = new char[len]; System.arraycopy(term, 0,
-         * key, 0, len); if (result != null) { cache.put(key, result); } else {
-         * cache.put(key, word.toString()); } }
-         ***/
+        if (cache != null) {
+            cache.put(term, off, len, result != null ? result : word.toString());
+        }
 
         /***
          * if (entry == null) { if (!word.toString().equals(new String(term,0,len)))
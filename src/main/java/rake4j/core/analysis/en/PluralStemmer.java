@@ -0,0 +1,62 @@
+package rake4j.core.analysis.en;
+
+import rake4j.core.analysis.StemOutput;
+import rake4j.core.analysis.Stemmer;
+
+/**
+ * Light English stemmer which only removes plurals, as the "S-Stemmer" of
+ * Harman (1991): -ies to -y, -es to -e or -s removed, leaving -us, -ss and
+ * a few -es endings alone.
+ *
+ * Much cheaper than {@link KStemmer}, with no dictionary and no state, so one
+ * instance can be shared by all threads.
+ */
+public final class PluralStemmer implements Stemmer {
+    public static final PluralStemmer INSTANCE = new PluralStemmer();
+
+    private PluralStemmer() {
+    }
+
+    public String stem(String term) {
+        StemOutput out = new StemOutput(term.length());
+        return stem(term.toCharArray(), 0, term.length(), out) ? out.toString() : term;
+    }
+
+    @Override
+    public boolean stem(char[] src, int off, int len, StemOutput out) {
+        int stemLength = stemLength(src, off, len);
+        out.set(src, off, stemLength);
+        if (stemLength == len) {
+            return false;
+        }
+        if (stemLength == len - 2) {
+            out.buffer()[stemLength - 1] = 'y';  // -ies
+        }
+        return true;
+    }
+
+    /**
+     * @return the length of the stem, which ends in -i instead of -y for the -ies plurals
+     */
+    private static int stemLength(char[] s, int off, int len) {
+        if (len < 3 || s[off + len - 1] != 's') {
+            return len;
+        }
+        switch (s[off + len - 2]) {
+            case 'u':
+            case 's':
+                return len;
+            case 'e':
+                char c = s[off + len - 3];
+                if (len > 3 && c == 'i' && s[off + len - 4] != 'a' && s[off + len - 4] != 'e') {
+                    return len - 2;
+                }
+                if (c == 'i' || c == 'a' || c == 'o' || c == 'e') {
+                    return len;
+                }
+                return len - 1;
+            default:
+                return len - 1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package rake4j.core.analysis.en;
+
+import rake4j.core.analysis.StemOutput;
+import rake4j.core.analysis.Stemmer;
+
+/**
+ * Thread-safe Kstem stemmer, one instance can serve any number of threads.
+ *
+ * A {@link KStemmer} keeps the word being stemmed in its fields, so each thread
+ * stems with its own, created on first use and reused afterwards. They share
+ * the dictionary and the stem cache, which are safe for concurrent use, so the
+ * per-thread part is only the scratch buffer and is never synchronized.
+ */
+public final class SharedKStemmer implements Stemmer {
+    private final StemCache cache;
+    private final ThreadLocal<KStemmer> stemmers;
+
+    public SharedKStemmer() {
+        this(null);
+    }
+
+    /**
+     * @param cache - caches the stems of the words which are not in the dictionary, null for none
+     */
+    public SharedKStemmer(StemCache cache) {
+        this.cache = cache;
+        this.stemmers = ThreadLocal.withInitial(() -> new KStemmer(cache));
+    }
+
+    public StemCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the stem of the lowercased term, or the term itself if it is not stemmed
+     */
+    public String stem(String term) {
+        return stemmers.get().stem(term);
+    }
+
+    @Override
+    public boolean stem(char[] src, int off, int len, StemOutput out) {
+        return stemmers.get().stem(src, off, len, out);
+    }
+}
@@ -0,0 +1,212 @@
+package rake4j.core.analysis.en;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded stem cache keyed by char slices, shared by any number of {@link KStemmer}s.
+ *
+ * The cache is direct-mapped: a word hashes to a single slot, and storing a
+ * word evicts whatever occupied its slot. The words and stems of the entries are
+ * published through final fields, so readers need no locks; a racing reader sees
+ * either the old or the new entry, and concurrent writers at worst drop an
+ * entry. With Zipfian vocabularies the frequent words stay cached and most
+ * lookups are a single probe.
+ *
+ * The hottest entries can be saved with {@link #write(OutputStream, int)} and
+ * preloaded into a new cache with {@link #read(InputStream)}, so a restarted
+ * process starts with the vocabulary it saw before. To rank them, one hit in
+ * {@value #HIT_SAMPLE} is counted on its entry, so threads reading a hot entry
+ * rarely write to it.
+ */
+public final class StemCache {
+    private static final int MAGIC = 0x4B535443;  // "KSTC"
+    private static final int VERSION = 1;
+    private static final int HIT_SAMPLE = 32;
+
+    private static final class Entry {
+        final char[] key;
+        final int hash;
+        final String root;
+        int hits;  // sampled and racy, only used to rank the entries
+
+        Entry(char[] key, int hash, String root) {
+            this.key = key;
+            this.hash = hash;
+            this.root = root;
+        }
+    }
+
+    private final Entry[] slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize - the maximum number of cached words, rounded up to a power of two
+     */
+    public StemCache(int maxSize) {
+        if (maxSize <= 0 || maxSize > 1 << 30) {
+            throw new IllegalArgumentException("maxSize must be in [1, 2^30]: " + maxSize);
+        }
+        int capacity = Integer.highestOneBit(maxSize);
+        if (capacity < maxSize) {
+            capacity <<= 1;
+        }
+        slots = new Entry[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the cached stem of term[off, off+len), or null
+     */
+    public String get(char[] term, int off, int len) {
+        int hash = hash(term, off, len);
+        Entry entry = slots[hash & mask];
+        if (entry != null && entry.hash == hash && equals(entry.key, term, off, len)) {
+            hits.increment();
+            if (ThreadLocalRandom.current().nextInt(HIT_SAMPLE) == 0) {
+                entry.hits++;
+            }
+            return entry.root;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the stem of term[off, off+len), evicting the word in the same slot
+     */
+    public void put(char[] term, int off, int len, String root) {
+        char[] key = new char[len];
+        System.arraycopy(term, off, key, 0, len);
+        int hash = hash(key, 0, len);
+        slots[hash & mask] = new Entry(key, hash, root);
+    }
+
+    /**
+     * Writes the n most used entries, most used first, as far as the sampled hits tell
+     * @param stream
+     * @param n - the maximum number of entries
+     * @return the number of entries written
+     * @throws IOException
+     */
+    public int write(OutputStream stream, int n) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : slots) {
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.hits, a.hits));
+        if (entries.size() > n) {
+            entries = entries.subList(0, n);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(new String(entry.key));
+            out.writeUTF(entry.root);
+        }
+        out.flush();
+        return entries.size();
+    }
+
+    /**
+     * Preloads the entries written by {@link #write(OutputStream, int)}. An entry
+     * does not evict the word already in its slot, so the first, most used
+     * entries win when this cache is smaller than the one written.
+     * @param stream
+     * @return the number of entries loaded
+     * @throws IOException
+     */
+    public int read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a stem cache file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported stem cache version " + version);
+        }
+        int loaded = 0;
+        for (int n = in.readInt(); n > 0; n--) {
+            char[] key = in.readUTF().toCharArray();
+            String root = in.readUTF();
+            int hash = hash(key, 0, key.length);
+            if (slots[hash & mask] == null) {
+                slots[hash & mask] = new Entry(key, hash, root);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the maximum number of cached words
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of cached words, by a scan of the slots
+     */
+    public int size() {
+        int size = 0;
+        for (Entry entry : slots) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = null;
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private static int hash(char[] term, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + term[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(char[] key, char[] term, int off, int len) {
+        if (key.length != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (key[i] != term[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package rake4j.core.index;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link Index} which any number of threads can add documents to at the same time.
+ *
+ * The postings live in a concurrent map and are counted with atomic updates
+ * of their own volatile fields, the totals with LongAdders, so writers never lock each other
+ * out. Once the writers are done, the counts are exactly those of an Index fed
+ * the same documents; while they run, the totals are sums of the counts so far
+ * and may not match each other.
+ */
+public class ConcurrentIndex extends Index {
+    /**
+     * Postings counted atomically, the plain fields of PostingsArray stay unused
+     */
+    static final class ConcurrentPostings extends PostingsArray {
+        private static final AtomicIntegerFieldUpdater<ConcurrentPostings> DF =
+                AtomicIntegerFieldUpdater.newUpdater(ConcurrentPostings.class, "concurrentDf");
+        private static final AtomicIntegerFieldUpdater<ConcurrentPostings> TF =
+                AtomicIntegerFieldUpdater.newUpdater(ConcurrentPostings.class, "concurrentTf");
+
+        private volatile int concurrentDf;
+        private volatile int concurrentTf;
+
+        void add(int df, int tf) {
+            if (df != 0) {
+                DF.addAndGet(this, df);
+            }
+            TF.addAndGet(this, tf);
+        }
+
+        @Override
+        int df() {
+            return concurrentDf;
+        }
+
+        @Override
+        int tf() {
+            return concurrentTf;
+        }
+
+        @Override
+        public String toString() {
+            return concurrentDf + " " + concurrentTf;
+        }
+    }
+
+    private final LongAdder docCount = new LongAdder();
+    private final LongAdder termFreqCount = new LongAdder();
+    private final LongAdder docFreqCount = new LongAdder();
+
+    public ConcurrentIndex() {
+        super(new ConcurrentHashMap<>());
+    }
+
+    @Override
+    void countDoc() {
+        docCount.increment();
+    }
+
+    @Override
+    void countTerm(String term, boolean firstInDoc) {
+        postings(term).add(firstInDoc ? 1 : 0, 1);
+        if (firstInDoc) {
+            docFreqCount.increment();
+        }
+        termFreqCount.increment();
+    }
+
+    @Override
+    void addPostings(String term, int df, int tf) {
+        postings(term).add(df, tf);
+    }
+
+    private ConcurrentPostings postings(String term) {
+        PostingsArray postings = invertedIndex.get(term);
+        if (postings == null) {
+            postings = invertedIndex.computeIfAbsent(term, key -> new ConcurrentPostings());
+        }
+        return (ConcurrentPostings) postings;
+    }
+
+    @Override
+    void addTotals(int numDocs, int totalTermFreq, int totalDocFreq) {
+        docCount.add(numDocs);
+        termFreqCount.add(totalTermFreq);
+        docFreqCount.add(totalDocFreq);
+    }
+
+    @Override
+    public Integer numDocs() {
+        return docCount.intValue();
+    }
+
+    @Override
+    public int totalTermFreq() {
+        return termFreqCount.intValue();
+    }
+
+    @Override
+    public int totalDocFreq() {
+        return docFreqCount.intValue();
+    }
+}
@@ -0,0 +1,16 @@
+package rake4j.core.index;
+
+import rake4j.core.model.Document;
+
+/**
+ * Something analyzed documents are counted into, e.g. an {@link Index} or a
+ * {@link SegmentedIndex}
+ */
+public interface DocumentIndexer {
+    /**
+     * Counts the top terms of an analyzed document
+     * @param doc - with its term map set, best first
+     * @param topPercentage - the fraction of the terms of the document to count
+     */
+    void processDoc(Document doc, float topPercentage);
+}
@@ -0,0 +1,233 @@
+package rake4j.core.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only, compact in-heap form of an {@link Index}, for large vocabularies.
+ *
+ * The terms are sorted by their UTF-8 bytes, as in the index files of
+ * {@link MappedIndex}, strings with equal bytes counting as one term, and
+ * front-coded in blocks of {@value #BLOCK_SIZE}: the first term of a block is
+ * stored whole, the others as the length of the prefix they share with the
+ * previous term and the rest of their bytes. The position of a term in the order is its ordinal into the df
+ * and tf arrays. A term is found by a binary search over the first terms of the
+ * blocks, then a scan of one block. Instead of a String, a HashMap entry and a
+ * PostingsArray per term, which take about 150 bytes for a keyphrase of 25
+ * chars, a term takes its suffix bytes and 8 bytes of counts.
+ *
+ * A FrozenIndex is immutable and can be shared by threads.
+ */
+public final class FrozenIndex implements Serializable {
+    private static final int BLOCK_SIZE = 16;
+
+    private final byte[] terms;  // the front-coded blocks
+    private final int[] blocks;  // the start of each block in terms
+    private final int[] df;
+    private final int[] tf;
+    private final int maxTermLength;
+    private final int numDocs;
+    private final int totalTermFreq;
+    private final int totalDocFreq;
+
+    private FrozenIndex(byte[] terms, int[] blocks, int[] df, int[] tf, int maxTermLength,
+                        int numDocs, int totalTermFreq, int totalDocFreq) {
+        this.terms = terms;
+        this.blocks = blocks;
+        this.df = df;
+        this.tf = tf;
+        this.maxTermLength = maxTermLength;
+        this.numDocs = numDocs;
+        this.totalTermFreq = totalTermFreq;
+        this.totalDocFreq = totalDocFreq;
+    }
+
+    /**
+     * @param index - left unchanged, and can be dropped afterwards
+     * @return the frozen counts of the index at this time
+     */
+    public static FrozenIndex of(Index index) {
+        SortedTerms sorted = new SortedTerms(index);
+        int n = sorted.size();
+        int[] blocks = new int[(n + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        int maxTermLength = 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] previous = null;
+        for (int i = 0; i < n; i++) {
+            byte[] term = sorted.terms[i];
+            maxTermLength = Math.max(maxTermLength, term.length);
+            if (i % BLOCK_SIZE == 0) {
+                blocks[i / BLOCK_SIZE] = out.size();
+                writeVInt(out, term.length);
+                out.write(term, 0, term.length);
+            } else {
+                int prefix = 0;
+                int limit = Math.min(previous.length, term.length);
+                while (prefix < limit && previous[prefix] == term[prefix]) {
+                    prefix++;
+                }
+                writeVInt(out, prefix);
+                writeVInt(out, term.length - prefix);
+                out.write(term, prefix, term.length - prefix);
+            }
+            previous = term;
+        }
+        return new FrozenIndex(out.toByteArray(), blocks, sorted.df, sorted.tf, maxTermLength,
+                index.numDocs(), index.totalTermFreq(), index.totalDocFreq());
+    }
+
+    /**
+     * @return the ordinal of the term in the sorted terms, or -1 if it is not in the index
+     */
+    public int ordinal(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        // the last block whose first term is not after the key
+        int low = 0;
+        int high = blocks.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int[] position = {blocks[mid]};
+            int length = readVInt(position);
+            int cmp = compare(terms, position[0], length, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid * BLOCK_SIZE;
+            }
+        }
+        if (high < 0) {
+            return -1;
+        }
+
+        byte[] scratch = new byte[maxTermLength];
+        int[] position = {blocks[high]};
+        int length = readVInt(position);
+        System.arraycopy(terms, position[0], scratch, 0, length);
+        position[0] += length;
+        int end = Math.min(size(), (high + 1) * BLOCK_SIZE);
+        for (int ordinal = high * BLOCK_SIZE + 1; ordinal < end; ordinal++) {
+            int prefix = readVInt(position);
+            int suffix = readVInt(position);
+            System.arraycopy(terms, position[0], scratch, prefix, suffix);
+            position[0] += suffix;
+            length = prefix + suffix;
+            int cmp = compare(scratch, 0, length, key);
+            if (cmp == 0) {
+                return ordinal;
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    public Integer docFreq(String term) {
+        int ordinal = ordinal(term);
+        return ordinal < 0 ? 0 : df[ordinal];
+    }
+
+    public Integer totalTermFreq(String term) {
+        int ordinal = ordinal(term);
+        return ordinal < 0 ? 0 : tf[ordinal];
+    }
+
+    /**
+     * @param ordinal - in [0, size())
+     * @return the term of the ordinal
+     */
+    public String term(int ordinal) {
+        if (ordinal < 0 || ordinal >= size()) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " of " + size() + " terms");
+        }
+        byte[] scratch = new byte[maxTermLength];
+        int[] position = {blocks[ordinal / BLOCK_SIZE]};
+        int length = readVInt(position);
+        System.arraycopy(terms, position[0], scratch, 0, length);
+        position[0] += length;
+        for (int i = ordinal % BLOCK_SIZE; i > 0; i--) {
+            int prefix = readVInt(position);
+            int suffix = readVInt(position);
+            System.arraycopy(terms, position[0], scratch, prefix, suffix);
+            position[0] += suffix;
+            length = prefix + suffix;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param ordinal - in [0, size())
+     */
+    public int docFreq(int ordinal) {
+        return df[ordinal];
+    }
+
+    /**
+     * @param ordinal - in [0, size())
+     */
+    public int totalTermFreq(int ordinal) {
+        return tf[ordinal];
+    }
+
+    /**
+     * @return the number of terms
+     */
+    public int size() {
+        return df.length;
+    }
+
+    public Integer numDocs() {
+        return numDocs;
+    }
+
+    public int totalTermFreq() {
+        return totalTermFreq;
+    }
+
+    public int totalDocFreq() {
+        return totalDocFreq;
+    }
+
+    /**
+     * @return the bytes of the arrays of the index, without the object headers
+     */
+    public long sizeInBytes() {
+        return terms.length + 4L * (blocks.length + df.length + tf.length);
+    }
+
+    private int readVInt(int[] position) {
+        int p = position[0];
+        int b = terms[p++];
+        int value = b & 0x7f;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = terms[p++];
+            value |= (b & 0x7f) << shift;
+        }
+        position[0] = p;
+        return value;
+    }
+
+    private static void writeVInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Compares bytes[from, from + length) with the key, as unsigned bytes
+     */
+    private static int compare(byte[] bytes, int from, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (bytes[from + i] & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -6,20 +6,31 @@ import rake4j.core.model.Term;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * User: Danyang
  * Date: 1/6/2015
  * Time: 20:15
  */
-public class Index implements Serializable {
-    Map<String, PostingsArray> invertedIndex = new HashMap<>();
+public class Index implements DocumentIndexer, Serializable {
+    Map<String, PostingsArray> invertedIndex;
     int numDocs = 0;
     int totalTermFreq = 0;
     int totalDocFreq = 0;
 
+    public Index() {
+        this(new HashMap<>());
+    }
+
+    Index(Map<String, PostingsArray> invertedIndex) {
+        this.invertedIndex = invertedIndex;
+    }
+
+    @Override
     public void processDoc(Document doc, float topPercentage) {
-        numDocs++;
+        countDoc();
 
         TreeMap<Integer, Term> termMap = doc.getTermMap();
         Set<String> repeated = new HashSet<>();
@@ -30,17 +41,114 @@ public class Index implements Serializable {
             Map.Entry e = (Map.Entry) itr.next();
             Term t = (Term) e.getValue();
             String s = t.getTermText();
-            if(!invertedIndex.containsKey(s)) {
-                invertedIndex.put(s, new PostingsArray());
+            countTerm(s, repeated.add(s));
+        }
+    }
+
+    void countDoc() {
+        numDocs++;
+    }
+
+    /**
+     * @param term
+     * @param firstInDoc - whether it is the first occurrence of the term in the document
+     */
+    void countTerm(String term, boolean firstInDoc) {
+        PostingsArray postings = invertedIndex.get(term);
+        if(postings==null) {
+            postings = new PostingsArray();
+            invertedIndex.put(term, postings);
+        }
+        if(firstInDoc) {
+            postings.df += 1;
+            totalDocFreq += 1;
+        }
+        postings.tf += 1;
+        totalTermFreq += 1;
+    }
+
+    /**
+     * Adds the counts of other indexes to this one, e.g. to combine the partial
+     * indexes of corpus shards
+     * @param others - left unchanged
+     * @return this
+     */
+    public Index merge(Index... others) {
+        for (Index other : others) {
+            for (Map.Entry<String, PostingsArray> e : other.getInvertedIndex().entrySet()) {
+                addPostings(e.getKey(), e.getValue().df(), e.getValue().tf());
             }
-            if(!repeated.contains(s)) {
-                invertedIndex.get(s).df += 1;
-                totalDocFreq += 1;
-                repeated.add(s);
+            addTotals(other.numDocs(), other.totalTermFreq(), other.totalDocFreq());
+        }
+        return this;
+    }
+
+    /**
+     * Merges many indexes pairwise, as a tree, in the pool
+     * @param parts - left unchanged
+     * @param pool
+     * @return a new index with the counts of all the parts
+     */
+    public static Index mergeAll(List<? extends Index> parts, ForkJoinPool pool) {
+        Index[] indexes = parts.toArray(new Index[parts.size()]);
+        return pool.invoke(new MergeTask(indexes, 0, indexes.length));
+    }
+
+    /**
+     * {@link #mergeAll(List, ForkJoinPool)} in the common pool
+     */
+    public static Index mergeAll(List<? extends Index> parts) {
+        return mergeAll(parts, ForkJoinPool.commonPool());
+    }
+
+    private static class MergeTask extends RecursiveTask<Index> {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_SIZE = 2;
+
+        private final Index[] parts;
+        private final int from;
+        private final int to;
+
+        MergeTask(Index[] parts, int from, int to) {
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Index compute() {
+            if (to - from <= LEAF_SIZE) {
+                return new Index().merge(Arrays.copyOfRange(parts, from, to));
             }
-            invertedIndex.get(s).tf += 1;
-            totalTermFreq += 1;
+            int mid = (from + to) >>> 1;
+            MergeTask left = new MergeTask(parts, from, mid);
+            left.fork();
+            Index right = new MergeTask(parts, mid, to).compute();
+            return left.join().merge(right);  // the subtree results are new indexes, merged in place
+        }
+    }
+
+    void addPostings(String term, int df, int tf) {
+        PostingsArray postings = invertedIndex.get(term);
+        if(postings==null) {
+            postings = new PostingsArray();
+            invertedIndex.put(term, postings);
         }
+        postings.df += df;
+        postings.tf += tf;
+    }
+
+    void addTotals(int numDocs, int totalTermFreq, int totalDocFreq) {
+        this.numDocs += numDocs;
+        this.totalTermFreq += totalTermFreq;
+        this.totalDocFreq += totalDocFreq;
+    }
+
+    /**
+     * @return a compact read-only copy of the counts, see {@link FrozenIndex}
+     */
+    public FrozenIndex freeze() {
+        return FrozenIndex.of(this);
     }
 
     @Override
@@ -50,14 +158,14 @@ public class Index implements Serializable {
 
     public Integer docFreq(String term) {
         if(invertedIndex.containsKey(term)) {
-            return invertedIndex.get(term).df;
+            return invertedIndex.get(term).df();
         }
         return 0;
     }
 
     public Integer totalTermFreq(String term) {
         if(invertedIndex.containsKey(term)) {
-            return invertedIndex.get(term).tf;
+            return invertedIndex.get(term).tf();
         }
         return 0;
     }
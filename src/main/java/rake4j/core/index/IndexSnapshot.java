@@ -0,0 +1,81 @@
+package rake4j.core.index;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time view of a {@link SegmentedIndex}: the segments and the
+ * buffered documents at the time it was taken, later documents and merges do
+ * not change it. The counts are the sums over the parts.
+ */
+public final class IndexSnapshot {
+    private final List<MappedIndex> segments;
+    private final List<Index> buffers;
+
+    IndexSnapshot(List<MappedIndex> segments, List<Index> buffers) {
+        this.segments = Collections.unmodifiableList(segments);
+        this.buffers = Collections.unmodifiableList(buffers);
+    }
+
+    public Integer docFreq(String term) {
+        int df = 0;
+        for (MappedIndex segment : segments) {
+            df += segment.docFreq(term);
+        }
+        for (Index buffer : buffers) {
+            df += buffer.docFreq(term);
+        }
+        return df;
+    }
+
+    public Integer totalTermFreq(String term) {
+        int tf = 0;
+        for (MappedIndex segment : segments) {
+            tf += segment.totalTermFreq(term);
+        }
+        for (Index buffer : buffers) {
+            tf += buffer.totalTermFreq(term);
+        }
+        return tf;
+    }
+
+    public Integer numDocs() {
+        int numDocs = 0;
+        for (MappedIndex segment : segments) {
+            numDocs += segment.numDocs();
+        }
+        for (Index buffer : buffers) {
+            numDocs += buffer.numDocs();
+        }
+        return numDocs;
+    }
+
+    public int totalTermFreq() {
+        int totalTermFreq = 0;
+        for (MappedIndex segment : segments) {
+            totalTermFreq += segment.totalTermFreq();
+        }
+        for (Index buffer : buffers) {
+            totalTermFreq += buffer.totalTermFreq();
+        }
+        return totalTermFreq;
+    }
+
+    public int totalDocFreq() {
+        int totalDocFreq = 0;
+        for (MappedIndex segment : segments) {
+            totalDocFreq += segment.totalDocFreq();
+        }
+        for (Index buffer : buffers) {
+            totalDocFreq += buffer.totalDocFreq();
+        }
+        return totalDocFreq;
+    }
+
+    /**
+     * @return the flushed segments of the view
+     */
+    public List<MappedIndex> getSegments() {
+        return segments;
+    }
+}
@@ -0,0 +1,379 @@
+package rake4j.core.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only form of an {@link Index}, stored in a file and memory-mapped, so it opens
+ * without loading anything and lives outside the heap.
+ *
+ * The file, written by {@link #write(Index, Path)}, holds the totals, the
+ * terms sorted by their UTF-8 bytes, and the df and tf of the terms in packed
+ * int arrays. A term is found by a binary search over the mapped bytes, which
+ * are only paged in when touched. The file is limited to 2GB. Lookups use
+ * absolute reads only, so a MappedIndex can be shared by threads. Files are
+ * combined by {@link #merge(List, Path)}, which streams the sorted terms.
+ *
+ * Format, big-endian: magic, version, the number of terms n, numDocs,
+ * totalTermFreq, totalDocFreq, then int[n+1] term offsets into the term bytes,
+ * int[n] df, int[n] tf and the term bytes.
+ */
+public final class MappedIndex {
+    private static final int MAGIC = 0x524B4958;  // "RKIX"
+    private static final int VERSION = 1;
+    private static final int HEADER = 6 * 4;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int numDocs;
+    private final int totalTermFreq;
+    private final int totalDocFreq;
+    private final int offsets;  // positions of the sections
+    private final int dfs;
+    private final int tfs;
+    private final int terms;
+
+    private MappedIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an index file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported index file version " + version);
+        }
+        size = buffer.getInt(8);
+        // the header, size + 1 offsets, size dfs and size tfs must fit, before the positions are computed
+        if (size < 0 || size > (buffer.capacity() - HEADER - 4L) / 12) {
+            throw new IOException("Corrupt index file, " + size + " terms in " + buffer.capacity() + " bytes");
+        }
+        numDocs = buffer.getInt(12);
+        totalTermFreq = buffer.getInt(16);
+        totalDocFreq = buffer.getInt(20);
+        offsets = HEADER;
+        dfs = offsets + (size + 1) * 4;
+        tfs = dfs + size * 4;
+        terms = tfs + size * 4;
+        if (terms < 0 || terms > buffer.capacity() || terms + buffer.getInt(offsets + size * 4) != buffer.capacity()) {
+            throw new IOException("Truncated index file");
+        }
+    }
+
+    /**
+     * Maps an index file
+     * @param path - written by {@link #write(Index, Path)}
+     * @return the index, valid as long as the file is not modified
+     * @throws IOException
+     */
+    public static MappedIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file larger than 2GB: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedIndex(buffer);
+        }
+    }
+
+    /**
+     * Writes an index in the format of MappedIndex, synced to the disk
+     * @param index
+     * @param path - replaced if it exists
+     * @throws IOException
+     */
+    public static void write(Index index, Path path) throws IOException {
+        SortedTerms sorted = new SortedTerms(index);
+        if (HEADER + 12L * sorted.size() + 4 + sorted.length > Integer.MAX_VALUE) {
+            throw new IOException("Index too large for an index file: " + sorted.size() + " terms");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt(index.numDocs());
+            out.writeInt(index.totalTermFreq());
+            out.writeInt(index.totalDocFreq());
+            int offset = 0;
+            for (byte[] term : sorted.terms) {
+                out.writeInt(offset);
+                offset += term.length;
+            }
+            out.writeInt(offset);
+            for (int df : sorted.df) {
+                out.writeInt(df);
+            }
+            for (int tf : sorted.tf) {
+                out.writeInt(tf);
+            }
+            for (byte[] term : sorted.terms) {
+                out.write(term);
+            }
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Merges index files into one, summing the counts of the terms they share.
+     * The terms are merged in order, without loading the indexes. The file is synced to the disk
+     * @param parts
+     * @param path - replaced if it exists
+     * @throws IOException
+     */
+    public static void merge(List<MappedIndex> parts, Path path) throws IOException {
+        int size = 0;
+        long length = 0;
+        long numDocs = 0;
+        long totalTermFreq = 0;
+        long totalDocFreq = 0;
+        for (MappedIndex part : parts) {
+            numDocs += part.numDocs;
+            totalTermFreq += part.totalTermFreq;
+            totalDocFreq += part.totalDocFreq;
+        }
+        for (TermMerger terms = new TermMerger(parts); terms.next(); ) {
+            size++;
+            length += terms.term.length;
+        }
+        if (HEADER + 12L * size + 4 + length > Integer.MAX_VALUE) {
+            throw new IOException("Index too large for an index file: " + size + " terms");
+        }
+        if (Math.max(numDocs, Math.max(totalTermFreq, totalDocFreq)) > Integer.MAX_VALUE) {
+            throw new IOException("Counts too large for an index file: " + numDocs + " documents, "
+                    + totalTermFreq + " term occurrences");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Section header = new Section(channel, 0);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(size);
+            header.putInt((int) numDocs);
+            header.putInt((int) totalTermFreq);
+            header.putInt((int) totalDocFreq);
+            header.flush();
+
+            Section offsets = new Section(channel, HEADER);
+            Section dfs = new Section(channel, HEADER + (size + 1) * 4L);
+            Section tfs = new Section(channel, HEADER + (size * 2 + 1) * 4L);
+            Section terms = new Section(channel, HEADER + (size * 3 + 1) * 4L);
+            int offset = 0;
+            for (TermMerger merger = new TermMerger(parts); merger.next(); ) {
+                offsets.putInt(offset);
+                offset += merger.term.length;
+                dfs.putInt(merger.df);
+                tfs.putInt(merger.tf);
+                terms.put(merger.term);
+            }
+            offsets.putInt(offset);
+            offsets.flush();
+            dfs.flush();
+            tfs.flush();
+            terms.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Iterates over the terms of several indexes in order, each term once with its summed counts
+     */
+    private static final class TermMerger {
+        private static final class Cursor {
+            final MappedIndex index;
+            int ordinal;
+            byte[] term;
+
+            Cursor(MappedIndex index) {
+                this.index = index;
+            }
+
+            boolean advance() {
+                if (++ordinal >= index.size) {
+                    return false;
+                }
+                term = index.termBytes(ordinal);
+                return true;
+            }
+        }
+
+        private final PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> SortedTerms.compare(a.term, b.term));
+        byte[] term;
+        int df;
+        int tf;
+
+        TermMerger(List<MappedIndex> parts) {
+            for (MappedIndex part : parts) {
+                Cursor cursor = new Cursor(part);
+                cursor.ordinal = -1;
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        boolean next() {
+            Cursor cursor = queue.poll();
+            if (cursor == null) {
+                return false;
+            }
+            term = cursor.term;
+            df = 0;
+            tf = 0;
+            while (true) {
+                df += cursor.index.buffer.getInt(cursor.index.dfs + cursor.ordinal * 4);
+                tf += cursor.index.buffer.getInt(cursor.index.tfs + cursor.ordinal * 4);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+                Cursor head = queue.peek();
+                if (head == null || SortedTerms.compare(head.term, term) != 0) {
+                    return true;
+                }
+                cursor = queue.poll();
+            }
+        }
+    }
+
+    /**
+     * Buffered writes to a region of a file
+     */
+    private static final class Section {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position;
+
+        Section(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int off = 0;
+            while (off < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - off);
+                buffer.put(bytes, off, n);
+                off += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * @return the ordinal of the term in the sorted terms, or -1 if it is not in the index
+     */
+    public int ordinal(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public Integer docFreq(String term) {
+        int ordinal = ordinal(term);
+        return ordinal < 0 ? 0 : buffer.getInt(dfs + ordinal * 4);
+    }
+
+    public Integer totalTermFreq(String term) {
+        int ordinal = ordinal(term);
+        return ordinal < 0 ? 0 : buffer.getInt(tfs + ordinal * 4);
+    }
+
+    /**
+     * @param ordinal - in [0, size())
+     * @return the term of the ordinal
+     */
+    public String term(int ordinal) {
+        return new String(termBytes(ordinal), StandardCharsets.UTF_8);
+    }
+
+    private byte[] termBytes(int ordinal) {
+        int start = termStart(ordinal);
+        byte[] bytes = new byte[termStart(ordinal + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(terms + start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    public Integer numDocs() {
+        return numDocs;
+    }
+
+    public int totalTermFreq() {
+        return totalTermFreq;
+    }
+
+    public int totalDocFreq() {
+        return totalDocFreq;
+    }
+
+    private int termStart(int ordinal) {
+        return buffer.getInt(offsets + ordinal * 4);
+    }
+
+    /**
+     * Compares the bytes of term ordinal with the key, as unsigned bytes
+     */
+    private int compareTerm(int ordinal, byte[] key) {
+        int start = terms + termStart(ordinal);
+        int length = terms + termStart(ordinal + 1) - start;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+}
@@ -13,6 +13,20 @@ public class PostingsArray implements Serializable {
     int df;
     int tf;
 
+    /**
+     * @return the number of documents with the term, read through this so subclasses can count concurrently
+     */
+    int df() {
+        return df;
+    }
+
+    /**
+     * @return the number of occurrences of the term
+     */
+    int tf() {
+        return tf;
+    }
+
     @Override
     public String toString() {
         return Displayer.toString(this, " ");
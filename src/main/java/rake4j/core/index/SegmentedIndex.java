@@ -0,0 +1,394 @@
+package rake4j.core.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rake4j.core.model.Document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incremental index stored in a directory as immutable {@link MappedIndex}
+ * segments.
+ *
+ * Documents are counted in an in-memory {@link ConcurrentIndex} buffer, which
+ * is written as a new segment once it holds maxBufferedTerms terms, so the heap
+ * stays bounded and each flush only writes new data. Segments are merged by a
+ * background thread with a tiered policy: flushed segments are on level 0, and
+ * mergeFactor segments of a level are merged into one of the next level, so a
+ * document is rewritten at most log(segments) times. {@link #snapshot()} gives
+ * readers a point-in-time view across the segments and the buffer.
+ *
+ * The live segments are listed in the commit file {@value #COMMIT}, replaced
+ * atomically after each flush and merge; opening a directory discards the
+ * segments it does not list. Documents can be added from several threads.
+ * Segments merged away are deleted while snapshots may still map them, which
+ * keeps working on POSIX file systems.
+ */
+public class SegmentedIndex implements DocumentIndexer, Closeable {
+    public static final int DEFAULT_MAX_BUFFERED_TERMS = 1 << 16;
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+    static final String COMMIT = "segments";
+    private static final String SUFFIX = ".seg";
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedIndex.class);
+
+    private static final class Segment {
+        final String name;
+        final int level;
+        final MappedIndex index;
+
+        Segment(String name, int level, MappedIndex index) {
+            this.name = name;
+            this.level = level;
+            this.index = index;
+        }
+    }
+
+    private final Path directory;
+    private final int maxBufferedTerms;
+    private final int mergeFactor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextSegment = new AtomicLong();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rake4j-segment-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the buffer is counted into under the read lock, the rest changes under the write lock
+    private ConcurrentIndex buffer = new ConcurrentIndex();
+    private final List<Index> flushing = new ArrayList<>();
+    private volatile List<Segment> segments;
+    private volatile boolean closed;
+
+    /**
+     * @param directory - created if it does not exist
+     * @throws IOException
+     */
+    public SegmentedIndex(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BUFFERED_TERMS, DEFAULT_MERGE_FACTOR);
+    }
+
+    /**
+     * @param directory - created if it does not exist, the segments it lists are opened
+     * @param maxBufferedTerms - the number of distinct terms which triggers a flush
+     * @param mergeFactor - the number of segments of a level which are merged together
+     * @throws IOException
+     */
+    public SegmentedIndex(Path directory, int maxBufferedTerms, int mergeFactor) throws IOException {
+        if (maxBufferedTerms <= 0 || mergeFactor < 2) {
+            throw new IllegalArgumentException("maxBufferedTerms must be positive and mergeFactor at least 2");
+        }
+        this.directory = directory;
+        this.maxBufferedTerms = maxBufferedTerms;
+        this.mergeFactor = mergeFactor;
+        Files.createDirectories(directory);
+
+        List<Segment> live = new ArrayList<>();
+        Path commit = directory.resolve(COMMIT);
+        if (Files.exists(commit)) {
+            for (String line : Files.readAllLines(commit, StandardCharsets.UTF_8)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length == 2) {
+                    live.add(new Segment(fields[0], Integer.parseInt(fields[1]), MappedIndex.open(directory.resolve(fields[0]))));
+                }
+            }
+        }
+        Set<String> names = new HashSet<>();
+        for (Segment segment : live) {
+            names.add(segment.name);
+        }
+        long next = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                next = Math.max(next, Long.parseLong(name.substring(0, name.length() - SUFFIX.length()), 36) + 1);
+                if (!names.contains(name)) {
+                    Files.delete(file);  // left over by an interrupted flush or merge
+                }
+            }
+        }
+        nextSegment.set(next);
+        segments = Collections.unmodifiableList(live);
+        scheduleMerge();
+    }
+
+    /**
+     * Counts the top terms of an analyzed document, see {@link Index#processDoc(Document, float)},
+     * flushing the buffer if it is full. If the flush fails, the error is logged
+     * and the documents stay buffered until the next flush.
+     */
+    @Override
+    public void processDoc(Document doc, float topPercentage) {
+        boolean full;
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Index closed: " + directory);
+            }
+            buffer.processDoc(doc, topPercentage);
+            full = buffer.getInvertedIndex().size() >= maxBufferedTerms;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (full) {
+            try {
+                flush(false);
+            } catch (IOException ex) {
+                logger.error("Error flushing an index segment to " + directory + ", keeping the documents buffered", ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered documents as a new segment. If it fails, the documents
+     * stay buffered and the flush can be retried.
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        flush(true);
+    }
+
+    private void flush(boolean force) throws IOException {
+        ConcurrentIndex frozen;
+        lock.writeLock().lock();
+        try {
+            if (buffer.numDocs() == 0 || (!force && buffer.getInvertedIndex().size() < maxBufferedTerms)) {
+                return;  // flushed by another thread
+            }
+            frozen = buffer;
+            buffer = new ConcurrentIndex();
+            flushing.add(frozen);  // still visible to snapshots until its segment is
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        String name = Long.toString(nextSegment.getAndIncrement(), 36) + SUFFIX;
+        Path path = directory.resolve(name);
+        boolean published = false;
+        try {
+            MappedIndex.write(frozen, path);
+            Segment segment = new Segment(name, 0, MappedIndex.open(path));
+            lock.writeLock().lock();
+            try {
+                List<Segment> next = new ArrayList<>(segments);
+                next.add(segment);
+                try {
+                    commit(next);
+                } finally {
+                    // published even if syncing the directory failed, and never counted twice by snapshots
+                    published = segments.contains(segment);
+                    if (published) {
+                        flushing.remove(frozen);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            if (!published) {
+                lock.writeLock().lock();
+                try {
+                    flushing.remove(frozen);
+                    buffer.merge(frozen);  // written by the next flush
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                deleteQuietly(path);
+            }
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * @return a point-in-time view of the documents added so far
+     */
+    public IndexSnapshot snapshot() {
+        lock.writeLock().lock();
+        try {
+            List<MappedIndex> indexes = new ArrayList<>();
+            for (Segment segment : segments) {
+                indexes.add(segment.index);
+            }
+            List<Index> buffers = new ArrayList<>(flushing);
+            buffers.add(new Index().merge(buffer));
+            return new IndexSnapshot(indexes, buffers);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of segments on disk
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Flushes the buffer and waits for the merges in progress. If the flush
+     * fails, the documents stay buffered and {@link #flush()} can be retried.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            flush(true);
+        } finally {
+            merger.shutdown();
+            try {
+                merger.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void scheduleMerge() {
+        try {
+            merger.execute(this::mergeSegments);
+        } catch (RejectedExecutionException ex) {
+            // closed, the segments stay as they are
+        }
+    }
+
+    private void mergeSegments() {
+        try {
+            List<Segment> candidates;
+            while ((candidates = findMerge(segments)) != null) {
+                List<MappedIndex> parts = new ArrayList<>();
+                for (Segment segment : candidates) {
+                    parts.add(segment.index);
+                }
+                String name = Long.toString(nextSegment.getAndIncrement(), 36) + SUFFIX;
+                Path path = directory.resolve(name);
+                Segment merged = null;
+                try {
+                    MappedIndex.merge(parts, path);
+                    merged = new Segment(name, candidates.get(0).level + 1, MappedIndex.open(path));
+                    lock.writeLock().lock();
+                    try {
+                        List<Segment> next = new ArrayList<>(segments);
+                        next.removeAll(candidates);
+                        next.add(merged);
+                        commit(next);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    if (merged == null || !segments.contains(merged)) {
+                        deleteQuietly(path);
+                    }
+                    throw ex;
+                }
+                for (Segment segment : candidates) {
+                    Files.deleteIfExists(directory.resolve(segment.name));
+                }
+            }
+        } catch (IOException ex) {
+            logger.error("Error merging the index segments of " + directory, ex);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            logger.warn("Error deleting " + path + ", it is deleted when the index is opened again", ex);
+        }
+    }
+
+    /**
+     * @return the oldest mergeFactor segments of the lowest level which has as many, or null
+     */
+    private List<Segment> findMerge(List<Segment> segments) {
+        for (int level = 0; ; level++) {
+            List<Segment> candidates = new ArrayList<>();
+            boolean higher = false;
+            for (Segment segment : segments) {
+                if (segment.level == level && candidates.size() < mergeFactor) {
+                    candidates.add(segment);
+                }
+                higher |= segment.level > level;
+            }
+            if (candidates.size() == mergeFactor) {
+                return candidates;
+            }
+            if (!higher) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Publishes the segments, under the write lock. The segment files are synced
+     * already, the commit file is synced before it replaces the previous one and
+     * the directory after, so the commit file never lists a segment whose bytes
+     * may not be on the disk.
+     */
+    private void commit(List<Segment> next) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Segment segment : next) {
+            sb.append(segment.name).append(' ').append(segment.level).append('\n');
+        }
+        Path tmp = directory.resolve(COMMIT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(COMMIT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segments = Collections.unmodifiableList(next);
+        syncDirectory();
+    }
+
+    /**
+     * Makes the renames and the new files of the directory durable
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            if (!System.getProperty("os.name").startsWith("Windows")) {
+                throw ex;
+            }
+            // directories can not be opened on Windows, which does not need this
+        }
+    }
+}
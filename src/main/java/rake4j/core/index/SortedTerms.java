@@ -0,0 +1,103 @@
+package rake4j.core.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The terms of an {@link Index} encoded in UTF-8 and sorted by their bytes, as
+ * unsigned, with their counts, the order of the index files and of
+ * {@link FrozenIndex}.
+ *
+ * Strings which encode to the same bytes, e.g. with different unpaired
+ * surrogates, which are all encoded as '?', are one term with the counts summed.
+ * The terms are sorted through an int permutation of their positions.
+ */
+final class SortedTerms {
+    final byte[][] terms;
+    final int[] df;
+    final int[] tf;
+    final long length;  // the total number of bytes of the terms
+
+    SortedTerms(Index index) {
+        Map<String, PostingsArray> postings = index.getInvertedIndex();
+        PostingsArray[] values = new PostingsArray[postings.size()];
+        byte[][] keys = new byte[values.length][];
+        int n = 0;
+        for (Map.Entry<String, PostingsArray> e : postings.entrySet()) {
+            if (n == keys.length) {
+                break;  // added to concurrently
+            }
+            keys[n] = e.getKey().getBytes(StandardCharsets.UTF_8);
+            values[n++] = e.getValue();
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sort(order, order.clone(), 0, n, keys);
+
+        byte[][] terms = new byte[n][];
+        int[] df = new int[n];
+        int[] tf = new int[n];
+        int size = 0;
+        long length = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] key = keys[order[i]];
+            PostingsArray p = values[order[i]];
+            if (size == 0 || compare(terms[size - 1], key) != 0) {
+                terms[size++] = key;
+                length += key.length;
+            }
+            df[size - 1] += p.df();
+            tf[size - 1] += p.tf();
+        }
+        this.terms = size == n ? terms : Arrays.copyOf(terms, size);
+        this.df = size == n ? df : Arrays.copyOf(df, size);
+        this.tf = size == n ? tf : Arrays.copyOf(tf, size);
+        this.length = length;
+    }
+
+    int size() {
+        return terms.length;
+    }
+
+    /**
+     * Merge sorts order[from, to) by the keys they point to, without boxing the
+     * positions; src holds the same positions as order on entry and is scratch
+     */
+    private static void sort(int[] order, int[] src, int from, int to, byte[][] keys) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int position = order[i];
+                int j = i;
+                for (; j > from && compare(keys[order[j - 1]], keys[position]) > 0; j--) {
+                    order[j] = order[j - 1];
+                }
+                order[j] = position;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(src, order, from, mid, keys);
+        sort(src, order, mid, to, keys);
+        for (int i = from, a = from, b = mid; i < to; i++) {
+            if (b >= to || a < mid && compare(keys[src[a]], keys[src[b]]) <= 0) {
+                order[i] = src[a++];
+            } else {
+                order[i] = src[b++];
+            }
+        }
+    }
+
+    static int compare(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -4,13 +4,32 @@ import junit.framework.TestCase;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import rake4j.core.analysis.Spans;
+import rake4j.core.analysis.StemOutput;
+import rake4j.core.analysis.StopWordSet;
+import rake4j.core.analysis.Stemmer;
+import rake4j.core.analysis.WordStats;
+import rake4j.core.analysis.en.KStemmer;
+import rake4j.core.analysis.en.PluralStemmer;
+import rake4j.core.analysis.en.SharedKStemmer;
+import rake4j.core.analysis.en.StemCache;
 import rake4j.core.model.Document;
+import rake4j.core.model.Term;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Unit test for simple App.
@@ -94,6 +113,29 @@ public class RakeAnalyzerTest extends TestCase {
         assertTrue(map.get(17).equals("systems"));
 
     }
+    public void testGeneratePhraseSpans() throws URISyntaxException {
+        String text = "the anti-lock brakes of the car - and of-web the";
+        RakeAnalyzer rake = new RakeAnalyzer();
+        Spans spans = rake.generatePhraseSpans(text.toCharArray());
+        assertEquals(3, spans.size());
+        assertEquals(4, spans.start(0));
+        assertEquals(20, spans.end(0));
+        assertEquals(28, spans.start(1));
+        assertEquals(31, spans.end(1));
+        assertEquals(38, spans.start(2));
+        assertEquals(44, spans.end(2));
+    }
+    public void testWordScores() throws URISyntaxException {
+        char[] text = "linear systems. linear".toCharArray();
+        RakeAnalyzer rake = new RakeAnalyzer();
+        WordStats wordStats = rake.calculateWordScores(rake.buildPhraseTable(text, rake.generatePhraseSpans(text), false));
+        Map<String, Float> wordScore = wordStats.asMap();
+        assertEquals(2, wordScore.size());
+        assertEquals(1.5f, wordScore.get("linear"));
+        assertEquals(2.0f, wordScore.get("systems"));
+        assertNull(wordScore.get("system"));
+        assertEquals(2, wordStats.frequency(0));
+    }
     public void testGetOffsetsOfSplitString2() throws Exception {
         String text = "undergraduate study, study";
         Document doc = new Document(text);
@@ -111,6 +153,22 @@ public class RakeAnalyzerTest extends TestCase {
         rake.run();
         assertTrue(doc.termMapToString().contains("axis of evil of night"));
     }
+    public void testMaxAdjoinDepth() throws URISyntaxException {
+        String text = "axis of evil of night. axis of evil of night. Something else";
+        RakeAnalyzer rake = new RakeAnalyzer();
+        rake.setMaxAdjoinDepth(1);
+        Document doc = new Document(text);
+        rake.loadDocument(doc);
+        rake.run();
+        assertTrue(doc.termMapToString().contains("axis of evil"));
+        assertFalse(doc.termMapToString().contains("axis of evil of night"));
+
+        rake.setMaxAdjoinDepth(0);
+        doc = new Document(text);
+        rake.loadDocument(doc);
+        rake.run();
+        assertFalse(doc.termMapToString().contains("axis of evil"));
+    }
     public void testRun() throws URISyntaxException {
         Document doc = new Document(text);
         RakeAnalyzer rake = new RakeAnalyzer();
@@ -120,6 +178,342 @@ public class RakeAnalyzerTest extends TestCase {
         assertTrue(doc.getTermMap().get(121).getScore()==8.5);
     }
 
+    public void testRunTopK() throws URISyntaxException {
+        Document doc = new Document(text);
+        RakeAnalyzer rake = new RakeAnalyzer();
+        rake.loadDocument(doc);
+        List<Term> top = rake.runTopK(3);
+        assertEquals(3, top.size());
+        assertEquals("linear diophantine equation", top.get(0).getTermText());
+        assertEquals(8.5f, top.get(0).getScore());
+        assertEquals(Integer.valueOf(121), top.get(0).getOffsets().get(0));
+        // equal scores, first occurrence first
+        assertEquals("minimal generate set", top.get(1).getTermText());
+        assertEquals("minimal support set", top.get(2).getTermText());
+        assertEquals(top.get(1).getScore(), top.get(2).getScore());
+
+        List<Term> all = rake.runTopK(Integer.MAX_VALUE, 4.0f);
+        assertEquals(all.subList(0, 3), top);
+        for (Term term : all) {
+            assertTrue(term.getScore() >= 4.0f);
+        }
+    }
+
+    public void testExtractConcurrently() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer(RakeConfig.defaults().withMinWordsForPhrase(2));
+        List<Term> expected = rake.extract(text, 5);
+        assertEquals("linear diophantine equation", expected.get(0).getTermText());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Term>>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String input = i % 2 == 0 ? text : text.toUpperCase();
+                futures.add(executor.submit(() -> rake.extract(input, 5)));
+            }
+            for (Future<List<Term>> future : futures) {
+                List<Term> terms = future.get();
+                assertEquals(expected, terms);
+                assertEquals(expected.get(0).getScore(), terms.get(0).getScore());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testExtractAll() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer();
+        List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            docs.add(new Document(i % 3 == 0 ? text : "axis of evil of night. axis of evil of night " + i));
+        }
+        List<List<Term>> results = rake.extractAll(docs);
+        assertEquals(docs.size(), results.size());
+        for (int i = 0; i < docs.size(); i++) {
+            assertEquals(rake.extract(docs.get(i).getText()), results.get(i));
+        }
+        assertEquals(results, rake.extractAll(docs, Integer.MAX_VALUE, ExecutionPolicy.sequential()));
+        assertEquals(results, rake.extractAll(docs, Integer.MAX_VALUE, new ForkJoinPool(3)));
+    }
+
+    public void testExecutionPolicy() throws Exception {
+        ExecutionPolicy policy = ExecutionPolicy.parallel(new ForkJoinPool(2), 1000);
+        assertFalse(policy.isParallel(999));
+        assertTrue(policy.isParallel(1000));
+        assertFalse(ExecutionPolicy.sequential().isParallel(Long.MAX_VALUE));
+
+        Document doc = new Document(text);
+        RakeAnalyzer rake = new RakeAnalyzer();
+        rake.loadDocument(doc);
+        rake.runWithoutOffset();
+        String expected = doc.termListToString();
+        rake.setConfig(rake.getConfig().withExecutionPolicy(ExecutionPolicy.parallel(new ForkJoinPool(2), 0)));
+        rake.runWithoutOffset();
+        assertEquals(expected, doc.termListToString());
+    }
+
+    public void testExtractAsync() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<List<Term>> future = rake.extractAsync(new Document(text), 3, executor);
+            assertEquals(rake.extract(text, 3), future.get());
+
+            CountDownLatch blocked = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            future = rake.extractAsync(new Document(text), executor);
+            assertTrue(future.cancel(false));
+            blocked.countDown();
+            assertTrue(future.isCancelled());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testStemIntoOutput() throws Exception {
+        char[] text = "university students 3d".toCharArray();
+        KStemmer stemmer = new KStemmer();
+        StemOutput out = new StemOutput(4);
+        assertTrue(stemmer.stem(text, 11, 8, out));
+        assertEquals("student", out.toString());
+        assertFalse(stemmer.stem(text, 20, 2, out));
+        assertEquals("3d", out.toString());
+    }
+
+    public void testStemCache() throws Exception {
+        StemCache cache = new StemCache(1000);
+        assertEquals(1024, cache.capacity());
+        KStemmer stemmer = new KStemmer(cache);
+        assertEquals("student", stemmer.stem("students"));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals("student", stemmer.stem("students"));
+        assertEquals("student", new KStemmer(cache).stem("students"));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testStemCacheWarmStart() throws Exception {
+        StemCache cache = new StemCache(1024);
+        KStemmer stemmer = new KStemmer(cache);
+        // the hits are sampled, so the ranking only shows over many lookups
+        for (int i = 0; i < 3000; i++) {
+            stemmer.stem("students");
+        }
+        for (int i = 0; i < 1000; i++) {
+            stemmer.stem("equations");
+        }
+        stemmer.stem("modules");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, cache.write(out, 2));
+        StemCache warm = new StemCache(1024);
+        assertEquals(2, warm.read(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(2, warm.size());
+        KStemmer warmStemmer = new KStemmer(warm);
+        assertEquals("student", warmStemmer.stem("students"));
+        assertEquals("equation", warmStemmer.stem("equations"));
+        assertEquals(2, warm.hits());
+        assertEquals(0, warm.misses());
+    }
+
+    @Test
+    public void testSharedStemmer() throws Exception {
+        String[] words = {"students", "friends", "accountancy", "modules", "equations", "generating",
+                "supported", "nationalization", "happily", "ran", "aging", "computers"};
+        KStemmer stemmer = new KStemmer();
+        String[] expected = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            expected[i] = stemmer.stem(words[i]);
+        }
+        SharedKStemmer shared = new SharedKStemmer(new StemCache(64));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    StemOutput out = new StemOutput();
+                    for (int i = 0; i < 1000; i++) {
+                        String word = words[i % words.length];
+                        shared.stem(word.toCharArray(), 0, word.length(), out);
+                        if (!expected[i % words.length].equals(out.toString())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("student", shared.stem("students"));
+    }
+
+    @Test
+    public void testStemmerChoice() throws Exception {
+        PluralStemmer plural = PluralStemmer.INSTANCE;
+        assertEquals("university", plural.stem("universities"));
+        assertEquals("module", plural.stem("modules"));
+        assertEquals("equation", plural.stem("equations"));
+        assertEquals("corpus", plural.stem("corpus"));
+        assertEquals("class", plural.stem("class"));
+        assertEquals("toes", plural.stem("toes"));
+        assertEquals("generating", plural.stem("generating"));
+
+        String text = "students  modules and generating universities";
+        RakeAnalyzer rake = new RakeAnalyzer(RakeConfig.defaults().withStemmer(plural));
+        assertEquals("student module", rake.extract(text).get(0).getTermText());
+        rake = new RakeAnalyzer(RakeConfig.defaults().withStemmer(Stemmer.NONE));
+        assertEquals("students modules", rake.extract(text).get(0).getTermText());
+        rake = new RakeAnalyzer(RakeConfig.defaults());
+        assertEquals("generate university", rake.extract(text).get(1).getTermText());
+
+        // run(Document), used by IndexWriter, follows the same setting as extract
+        Document doc = new Document(text);
+        new RakeAnalyzer(RakeConfig.defaults().withStemming(false)).run(doc);
+        assertTrue(termTexts(doc).contains("students  modules"));
+        new RakeAnalyzer(RakeConfig.defaults()).run(doc);
+        assertTrue(termTexts(doc).contains("student module"));
+    }
+
+    private static List<String> termTexts(Document doc) {
+        List<String> texts = new ArrayList<>();
+        for (Term term : doc.getTermMap().values()) {
+            texts.add(term.getTermText());
+        }
+        return texts;
+    }
+
+    @Test
+    public void testSharedStopWords() throws Exception {
+        List<String> smart = StopWordRegistry.stopWords("SmartStopListEn.txt");
+        assertSame(smart, StopWordRegistry.stopWords("SmartStopListEn.txt"));
+        assertEquals(RakeConfig.defaults().getStopWords(), smart);
+
+        RakeAnalyzer rake = new RakeAnalyzer();
+        rake.loadStopWords(new ArrayList<>(smart));
+        assertSame(RakeConfig.defaults().getScanner().getStopWords(), rake.getConfig().getScanner().getStopWords());
+
+        List<String> fox = StopWordRegistry.stopWords("FoxStopListEn.txt");
+        assertSame(StopWordRegistry.compile(fox), new RakeConfig(fox).getScanner().getStopWords());
+        assertNotSame(StopWordRegistry.compile(fox), StopWordRegistry.compile(smart));
+
+        // lists of callers are shared while in use
+        List<String> edited = new ArrayList<>(smart);
+        edited.add("registry" + System.nanoTime());
+        RakeConfig config = new RakeConfig(edited);
+        assertSame(config.getScanner().getStopWords(), new RakeConfig(new ArrayList<>(edited)).getScanner().getStopWords());
+
+        // resources are read without being compiled, and compiled once on first use;
+        // caller sets of other tests may be collected meanwhile, so the size can only drop
+        int before = StopWordRegistry.size();
+        List<String> german = StopWordRegistry.stopWords("StopListDe.txt");
+        assertTrue(StopWordRegistry.size() <= before);
+        StopWordSet set = StopWordRegistry.compile(new ArrayList<>(german));
+        assertSame(set, StopWordRegistry.compile(german));
+        assertSame(set, new RakeConfig(german).getScanner().getStopWords());
+    }
+
+    @Test
+    public void testHotReload() throws Exception {
+        String text = "fast keyword extraction; stop word lists";
+        RakeAnalyzer rake = new RakeAnalyzer(RakeConfig.defaults());
+        assertEquals("fast keyword extraction", rake.extract(text).get(0).getTermText());
+
+        List<String> stopWords = new ArrayList<>(RakeConfig.defaults().getStopWords());
+        stopWords.add("keyword");
+        RakeConfig reloaded = rake.updateConfig(c -> c.withStopWords(stopWords, Arrays.asList(";")));
+        assertSame(reloaded, rake.getConfig());
+        assertEquals(Arrays.asList(";"), reloaded.getPunctuation());
+        assertEquals("stop word lists", rake.extract(text).get(0).getTermText());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> extractions = pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String top = rake.extract(text).get(0).getTermText();
+                    assertTrue(top, top.equals("stop word lists") || top.equals("fast keyword extraction"));
+                }
+            });
+            for (int i = 0; i < 200; i++) {
+                rake.setConfig(i % 2 == 0 ? RakeConfig.defaults() : reloaded);
+            }
+            extractions.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStopWordOverlay() throws Exception {
+        String text = "Compatibility of systems of linear constraints over the set of natural numbers. "
+                + "Criteria of compatibility of a system of linear Diophantine equations, strict inequations, "
+                + "and nonstrict inequations are considered.";
+        RakeConfig base = RakeConfig.defaults();
+        RakeConfig tenant = base.withStopWordOverlay(Arrays.asList("linear", "Strict"), Arrays.asList("over", "are", "linear"));
+        assertSame(base.getStopWordProfile().getBase(), tenant.getStopWordProfile().getBase());
+        assertEquals(Arrays.asList("linear", "strict"), tenant.getStopWordProfile().getAdded());
+        assertEquals(Arrays.asList("over", "are"), tenant.getStopWordProfile().getRemoved());
+
+        StopWordSet set = tenant.getScanner().getStopWords();
+        assertTrue(set.contains("linear"));
+        assertTrue(set.contains("strict"));
+        assertFalse(set.contains("over"));
+        assertTrue(set.contains("of"));
+        assertEquals(base.getScanner().getStopWords().size(), set.size());
+        assertEquals(new RakeConfig(tenant.getStopWords()).getScanner().getStopWords().size(), set.size());
+
+        List<Term> expected = new RakeAnalyzer(new RakeConfig(tenant.getStopWords())).extract(text);
+        List<Term> actual = new RakeAnalyzer(tenant).extract(text);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTermText(), actual.get(i).getTermText());
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore());
+        }
+        assertTrue(actual.toString().contains("constraint over"));
+
+        RakeConfig reverted = tenant.withStopWordOverlay(Arrays.asList("over", "are"), Arrays.asList("linear", "strict"));
+        assertSame(base.getScanner().getStopWords(), reverted.getScanner().getStopWords());
+    }
+
+    @Test
+    public void testLanguageRouting() throws Exception {
+        LanguagePack de = new LanguagePack("de", "StopListDe.txt", "RakePunctDefaultStopList.txt");
+        LanguagePacks packs = new LanguagePacks()
+                .register(new LanguagePack("en", "SmartStopListEn.txt", null))
+                .register(de);
+        assertFalse(de.isLoaded());
+
+        String english = "Compatibility of systems of linear constraints over the set of natural numbers.";
+        int compiled = StopWordRegistry.size();
+        String german = "Die Verträglichkeit von Systemen linearer Nebenbedingungen über der Menge der natürlichen Zahlen "
+                + "wird für die Lösung und den Aufbau untersucht. Es ist nicht so, dass wir das auch zeigen können.";
+        assertEquals("en", packs.route(english).getLanguage());
+        assertFalse(de.isLoaded());
+        assertEquals("de", packs.route(german).getLanguage());
+        assertFalse(de.isLoaded());
+        // routing compiles no set; caller sets of other tests may be collected meanwhile
+        assertTrue(StopWordRegistry.size() <= compiled);
+
+        RakeConfig config = packs.configFor(german);
+        assertTrue(de.isLoaded());
+        assertSame(config, de.getConfig());
+        assertTrue(config.getPunctuation().contains(";"));
+        assertTrue(new RakeAnalyzer(config).extract(german).get(0).getTermText().startsWith("systemen linear"));
+        assertEquals("en", packs.route("12345").getLanguage());
+        assertEquals(RakeConfig.defaults().getStopWords(), LanguagePacks.defaults().get("en").getConfig().getStopWords());
+    }
+
     @Test
     public void testRunWithFile() throws Exception {
         // RakeAnalyzer.run(this.getClass().getResource("/G_KARYPIS_Empirical_and_t.txt").toString().replace("file:/", ""));
@@ -0,0 +1,92 @@
+package rake4j.core;
+
+import org.apache.commons.io.IOUtils;
+import rake4j.core.analysis.StemOutput;
+import rake4j.core.analysis.Stemmer;
+import rake4j.core.analysis.en.PluralStemmer;
+import rake4j.core.analysis.en.SharedKStemmer;
+import rake4j.core.analysis.en.StemCache;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput of the stemmers, alone and in a single threaded extraction, on
+ * the bundled G_KARYPIS_Empirical_and_t.txt:
+ * <pre>java -cp target/classes:target/test-classes:... rake4j.core.StemmerBenchmark [seconds]</pre>
+ */
+public class StemmerBenchmark {
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        String text;
+        try (InputStream in = StemmerBenchmark.class.getResourceAsStream("/G_KARYPIS_Empirical_and_t.txt")) {
+            text = IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^a-z]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+
+        Map<String, Stemmer> stemmers = new LinkedHashMap<>();
+        stemmers.put("none", Stemmer.NONE);
+        stemmers.put("plural", PluralStemmer.INSTANCE);
+        stemmers.put("kstem", new SharedKStemmer());
+        stemmers.put("kstem+cache", new SharedKStemmer(new StemCache(1 << 16)));
+
+        System.out.printf("%-12s %16s %16s%n", "stemmer", "tokens/s", "extract Mchars/s");
+        for (Map.Entry<String, Stemmer> entry : stemmers.entrySet()) {
+            Stemmer stemmer = entry.getValue();
+            double tokensPerSecond = stemTokens(stemmer, tokens, seconds);
+            RakeAnalyzer rake = new RakeAnalyzer(RakeConfig.defaults().withStemmer(stemmer)
+                    .withExecutionPolicy(ExecutionPolicy.sequential()));
+            double megacharsPerSecond = extract(rake, text, seconds) * text.length() / 1e6;
+            System.out.printf("%-12s %16.0f %16.2f%n", entry.getKey(), tokensPerSecond, megacharsPerSecond);
+        }
+    }
+
+    private static double stemTokens(Stemmer stemmer, List<String> tokens, double seconds) {
+        char[][] chars = new char[tokens.size()][];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = tokens.get(i).toCharArray();
+        }
+        StemOutput out = new StemOutput();
+        return measure(seconds, () -> {
+            for (char[] token : chars) {
+                stemmer.stem(token, 0, token.length, out);
+            }
+        }) * chars.length;
+    }
+
+    /**
+     * @return documents per second
+     */
+    private static double extract(RakeAnalyzer rake, String text, double seconds) {
+        return measure(seconds, () -> rake.extract(text));
+    }
+
+    /**
+     * Warms up for a third of the time, then measures
+     * @return runs per second
+     */
+    private static double measure(double seconds, Runnable run) {
+        long warmup = System.nanoTime() + (long) (seconds / 3 * 1e9);
+        while (System.nanoTime() < warmup) {
+            run.run();
+        }
+        long runs = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long now;
+        do {
+            run.run();
+            runs++;
+        } while ((now = System.nanoTime()) < end);
+        return runs / ((now - start) / 1e9);
+    }
+}
@@ -0,0 +1,82 @@
+package rake4j.core.analysis;
+
+import junit.framework.TestCase;
+import rake4j.core.analysis.en.PluralStemmer;
+
+public class PhraseTableTest extends TestCase {
+    private static final String TEXT = "linear  equations, strict inequations, linear equations; 3.5 ab. linear equations";
+
+    private static Spans spans(String... phrases) {
+        Spans spans = new Spans();
+        int from = 0;
+        for (String phrase : phrases) {
+            int start = TEXT.indexOf(phrase, from);
+            spans.add(start, start + phrase.length());
+            from = start + phrase.length();
+        }
+        return spans;
+    }
+
+    private static String words(PhraseTable table, int p) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = table.wordsStart(p); i < table.wordsEnd(p); i++) {
+            sb.append(sb.length() > 0 ? "," : "").append(table.getWords().word(table.wordIds()[i]));
+        }
+        return sb.toString();
+    }
+
+    public void testWithoutStemmer() {
+        PhraseTable table = new PhraseTable();
+        table.build(TEXT.toCharArray(), spans("linear  equations", "strict inequations", "linear equations",
+                "3.5 ab", "linear equations"), null, 1);
+
+        assertEquals(5, table.size());
+        assertEquals("linear  equations", table.text(0));
+        assertEquals("linear equations", table.text(2));
+        assertEquals("3.5 ab", table.text(3));
+        assertEquals(2, table.tokenCount(0));
+        assertEquals(2, table.tokenCount(3));
+        assertEquals(TEXT.indexOf("strict"), table.start(1));
+
+        // the text is kept as it is, so only the phrases spelled the same share an id
+        assertTrue(table.textId(0) != table.textId(2));
+        assertEquals(table.textId(2), table.textId(4));
+        assertEquals(4, table.textCount());
+
+        assertEquals("linear,equations", words(table, 0));
+        assertEquals("ab", words(table, 3));  // numbers are not words
+        assertEquals(5, table.wordCount());
+        assertEquals(table.wordIds()[table.wordsStart(0)], table.wordIds()[table.wordsStart(2)]);
+    }
+
+    public void testWithStemmer() {
+        PhraseTable table = new PhraseTable();
+        table.build(TEXT.toCharArray(), spans("linear  equations", "strict inequations", "linear equations",
+                "3.5 ab", "linear equations"), PluralStemmer.INSTANCE, 3);
+
+        // tokens are stemmed and joined by a single space
+        assertEquals("linear equation", table.text(0));
+        assertEquals("strict inequation", table.text(1));
+        assertEquals(table.textId(0), table.textId(2));
+        assertEquals(table.textId(0), table.textId(4));
+        assertEquals(3, table.textCount());
+
+        assertEquals("linear,equation", words(table, 0));
+        assertEquals("", words(table, 3));  // "ab" is shorter than minWordLength
+        assertEquals(4, table.wordCount());
+    }
+
+    public void testReuse() {
+        PhraseTable table = new PhraseTable();
+        table.build(TEXT.toCharArray(), spans("linear  equations", "strict inequations", "linear equations",
+                "3.5 ab", "linear equations"), null, 1);
+        table.build(TEXT.toCharArray(), spans("strict inequations"), null, 1);
+
+        assertEquals(1, table.size());
+        assertEquals(1, table.textCount());
+        assertEquals(0, table.textId(0));
+        assertEquals("strict inequations", table.text(0));
+        assertEquals("strict,inequations", words(table, 0));
+        assertEquals(2, table.wordCount());
+    }
+}
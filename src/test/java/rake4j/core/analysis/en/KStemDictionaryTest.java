@@ -0,0 +1,67 @@
+package rake4j.core.analysis.en;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+public class KStemDictionaryTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        Map<String, KStemmer.DictEntry> words = KStemmer.initializeDictHash();
+        KStemDictionary built = KStemDictionary.of(words);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        built.write(out);
+        assertSameLookups(words, KStemDictionary.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    public void testPrebuiltResource() throws Exception {
+        Map<String, KStemmer.DictEntry> words = KStemmer.initializeDictHash();
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        KStemDictionary.of(words).write(generated);
+
+        // the checked in resource is the output of KStemDictionaryBuilder
+        ByteArrayOutputStream resource = new ByteArrayOutputStream();
+        try (InputStream in = KStemDictionary.class.getResourceAsStream(KStemDictionary.RESOURCE)) {
+            assertNotNull(in);
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                resource.write(buffer, 0, n);
+            }
+        }
+        assertTrue(Arrays.equals(generated.toByteArray(), resource.toByteArray()));
+        assertSameLookups(words, KStemDictionary.get());
+    }
+
+    public void testMissingResource() {
+        Map<String, KStemmer.DictEntry> words = KStemmer.initializeDictHash();
+        assertSameLookups(words, KStemDictionary.load("missing.dict"));
+    }
+
+    public void testCorruptResource() {
+        try {
+            KStemDictionary.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    private static void assertSameLookups(Map<String, KStemmer.DictEntry> words, KStemDictionary dictionary) {
+        assertEquals(words.size(), dictionary.size());
+        for (Map.Entry<String, KStemmer.DictEntry> e : words.entrySet()) {
+            char[] word = ("  " + e.getKey() + " ").toCharArray();
+            KStemmer.DictEntry entry = dictionary.get(word, 2, e.getKey().length());
+            assertNotNull(e.getKey(), entry);
+            assertEquals(e.getKey(), e.getValue().root, entry.root);
+            assertEquals(e.getKey(), e.getValue().exception, entry.exception);
+        }
+        char[] missing = "qwertyuiop".toCharArray();
+        assertNull(dictionary.get(missing, 0, missing.length));
+        assertNull(dictionary.get(missing, 0, 0));
+    }
+}
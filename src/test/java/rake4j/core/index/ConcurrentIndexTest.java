@@ -0,0 +1,53 @@
+package rake4j.core.index;
+
+import junit.framework.TestCase;
+import rake4j.core.IndexWriter;
+import rake4j.core.RakeAnalyzer;
+import rake4j.core.model.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentIndexTest extends TestCase {
+
+    public void testConcurrentWriters() throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            texts.add("linear diophantine equations " + (i % 7) + " and strict inequations; natural numbers of set "
+                    + (i % 3) + ", minimal supporting set " + (i % 5) + " and linear constraints");
+        }
+        RakeAnalyzer rake = new RakeAnalyzer();
+        Index expected = new Index();
+        IndexWriter writer = new IndexWriter(expected, rake, 0.5f);
+        for (String text : texts) {
+            writer.addDocument(new Document(text));
+        }
+
+        Index actual = new ConcurrentIndex();
+        IndexWriter concurrentWriter = new IndexWriter(actual, rake, 0.5f);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String text : texts) {
+                futures.add(pool.submit(() -> concurrentWriter.addDocument(new Document(text))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(expected.totalTermFreq() > 200);
+        assertEquals(200, actual.numDocs().intValue());
+        assertEquals(expected.totalTermFreq(), actual.totalTermFreq());
+        assertEquals(expected.totalDocFreq(), actual.totalDocFreq());
+        assertEquals(expected.getInvertedIndex().keySet(), actual.getInvertedIndex().keySet());
+        for (String term : expected.getInvertedIndex().keySet()) {
+            assertEquals(expected.docFreq(term), actual.docFreq(term));
+            assertEquals(expected.totalTermFreq(term), actual.totalTermFreq(term));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package rake4j.core.index;
+
+import junit.framework.TestCase;
+import rake4j.core.IndexWriter;
+import rake4j.core.RakeAnalyzer;
+import rake4j.core.model.Document;
+
+public class FrozenIndexTest extends TestCase {
+
+    public void testFreeze() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer();
+        Index index = new Index();
+        IndexWriter writer = new IndexWriter(index, rake, 1.0f);
+        for (int i = 0; i < 60; i++) {
+            writer.addDocument(new Document("linear diophantine equations " + (i % 23) + " and strict inequations; "
+                    + "größte gemeinsame teiler " + (i % 17) + " of natural numbers"));
+        }
+        FrozenIndex frozen = index.freeze();
+        assertTrue(frozen.size() > 32);
+        assertEquals(index.getInvertedIndex().size(), frozen.size());
+        assertEquals(index.numDocs(), frozen.numDocs());
+        assertEquals(index.totalTermFreq(), frozen.totalTermFreq());
+        assertEquals(index.totalDocFreq(), frozen.totalDocFreq());
+        for (String term : index.getInvertedIndex().keySet()) {
+            int ordinal = frozen.ordinal(term);
+            assertEquals(term, frozen.term(ordinal));
+            assertEquals(index.docFreq(term), frozen.docFreq(term));
+            assertEquals(index.totalTermFreq(term).intValue(), frozen.totalTermFreq(ordinal));
+        }
+        for (int i = 1; i < frozen.size(); i++) {
+            assertTrue(frozen.term(i - 1).compareTo(frozen.term(i)) < 0);
+        }
+        assertEquals(-1, frozen.ordinal(""));
+        assertEquals(-1, frozen.ordinal("linear diophantine"));
+        assertEquals(-1, frozen.ordinal("zzz"));
+        assertEquals(0, frozen.docFreq("größte gemeinsame").intValue());
+    }
+
+    public void testUnpairedSurrogates() {
+        Index index = new Index();
+        index.addPostings("a\uD800", 1, 2);
+        index.addPostings("a\uDC00", 2, 3);  // both are encoded as "a?"
+        index.addPostings("b", 1, 1);
+
+        FrozenIndex frozen = index.freeze();
+        assertEquals(2, frozen.size());
+        assertEquals("a?", frozen.term(0));
+        assertEquals(3, frozen.docFreq("a\uDC00").intValue());
+        assertEquals(5, frozen.totalTermFreq(0));
+        assertEquals(1, frozen.ordinal("b"));
+    }
+}
@@ -0,0 +1,44 @@
+package rake4j.core.index;
+
+import junit.framework.TestCase;
+import rake4j.core.IndexWriter;
+import rake4j.core.RakeAnalyzer;
+import rake4j.core.model.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class IndexTest extends TestCase {
+
+    public void testMerge() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer();
+        Index full = new Index();
+        List<Index> shards = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            shards.add(new Index());
+        }
+        for (int i = 0; i < 50; i++) {
+            String text = "linear diophantine equations " + (i % 4) + " and strict inequations; minimal supporting set "
+                    + (i % 3) + " of natural numbers";
+            new IndexWriter(full, rake, 0.5f).addDocument(new Document(text));
+            new IndexWriter(shards.get(i % shards.size()), rake, 0.5f).addDocument(new Document(text));
+        }
+        int shardDocs = shards.get(0).numDocs();
+
+        Index merged = Index.mergeAll(shards, new ForkJoinPool(3));
+        Index sequential = new ConcurrentIndex().merge(shards.toArray(new Index[shards.size()]));
+        assertEquals(shardDocs, shards.get(0).numDocs().intValue());
+        for (Index index : Arrays.asList(merged, sequential)) {
+            assertEquals(50, index.numDocs().intValue());
+            assertEquals(full.totalTermFreq(), index.totalTermFreq());
+            assertEquals(full.totalDocFreq(), index.totalDocFreq());
+            assertEquals(full.getInvertedIndex().keySet(), index.getInvertedIndex().keySet());
+            for (String term : full.getInvertedIndex().keySet()) {
+                assertEquals(full.docFreq(term), index.docFreq(term));
+                assertEquals(full.totalTermFreq(term), index.totalTermFreq(term));
+            }
+        }
+    }
+}
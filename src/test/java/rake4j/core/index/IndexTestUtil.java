@@ -0,0 +1,23 @@
+package rake4j.core.index;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class IndexTestUtil {
+    private IndexTestUtil() {
+    }
+
+    /**
+     * Deletes a directory of index files
+     */
+    static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
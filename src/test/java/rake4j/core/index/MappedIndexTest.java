@@ -0,0 +1,98 @@
+package rake4j.core.index;
+
+import junit.framework.TestCase;
+import rake4j.core.IndexWriter;
+import rake4j.core.RakeAnalyzer;
+import rake4j.core.model.Document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class MappedIndexTest extends TestCase {
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("rake4j");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        IndexTestUtil.delete(directory);
+    }
+
+    public void testWriteAndOpen() throws Exception {
+        RakeAnalyzer rake = new RakeAnalyzer();
+        Index index = new Index();
+        IndexWriter writer = new IndexWriter(index, rake, 1.0f);
+        for (int i = 0; i < 20; i++) {
+            writer.addDocument(new Document("linear diophantine equations " + (i % 4) + " and strict inequations; "
+                    + "größte gemeinsame teiler " + (i % 3) + " of natural numbers"));
+        }
+        Path path = directory.resolve("index.idx");
+        MappedIndex.write(index, path);
+        MappedIndex mapped = MappedIndex.open(path);
+        assertEquals(index.getInvertedIndex().size(), mapped.size());
+        assertEquals(index.numDocs(), mapped.numDocs());
+        assertEquals(index.totalTermFreq(), mapped.totalTermFreq());
+        assertEquals(index.totalDocFreq(), mapped.totalDocFreq());
+        for (String term : index.getInvertedIndex().keySet()) {
+            assertEquals(index.docFreq(term), mapped.docFreq(term));
+            assertEquals(index.totalTermFreq(term), mapped.totalTermFreq(term));
+            assertEquals(term, mapped.term(mapped.ordinal(term)));
+        }
+        assertTrue(mapped.docFreq("größte gemeinsame teiler 0") > 0);
+        assertEquals(0, mapped.docFreq("missing").intValue());
+        assertEquals(0, mapped.totalTermFreq("").intValue());
+    }
+
+    public void testUnpairedSurrogates() throws Exception {
+        Index index = new Index();
+        index.addPostings("a\uD800", 1, 2);
+        index.addPostings("a\uDC00", 2, 3);  // both are encoded as "a?"
+        index.addPostings("b", 1, 1);
+        Path path = directory.resolve("surrogates.idx");
+        MappedIndex.write(index, path);
+
+        MappedIndex mapped = MappedIndex.open(path);
+        assertEquals(2, mapped.size());
+        assertEquals("a?", mapped.term(0));
+        assertEquals(3, mapped.docFreq("a\uD800").intValue());
+        assertEquals(5, mapped.totalTermFreq("a?").intValue());
+        assertEquals(1, mapped.docFreq("b").intValue());
+    }
+
+    public void testMergeOverflow() throws Exception {
+        Index index = new Index();
+        index.addPostings("term", 1, 1);
+        index.addTotals(Integer.MAX_VALUE - 1, 1, 1);
+        Path path = directory.resolve("large.idx");
+        MappedIndex.write(index, path);
+        MappedIndex mapped = MappedIndex.open(path);
+        try {
+            MappedIndex.merge(Arrays.asList(mapped, mapped), directory.resolve("merged.idx"));
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Counts too large"));
+        }
+    }
+
+    public void testCorruptSize() throws Exception {
+        Index index = new Index();
+        index.addPostings("term", 1, 1);
+        Path path = directory.resolve("corrupt.idx");
+        MappedIndex.write(index, path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(8, 0x40000000);  // the number of terms
+        Files.write(path, bytes);
+        try {
+            MappedIndex.open(path);
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Corrupt index file"));
+        }
+    }
+}
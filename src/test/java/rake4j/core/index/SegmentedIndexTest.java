@@ -0,0 +1,169 @@
+package rake4j.core.index;
+
+import junit.framework.TestCase;
+import rake4j.core.IndexWriter;
+import rake4j.core.RakeAnalyzer;
+import rake4j.core.model.Document;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SegmentedIndexTest extends TestCase {
+    private RakeAnalyzer rake;
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        rake = new RakeAnalyzer();
+        directory = Files.createTempDirectory("rake4j");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (Files.exists(directory)) {
+            IndexTestUtil.delete(directory);
+        }
+    }
+
+    private Document analyzed(int i) {
+        Document doc = new Document("linear diophantine equations " + (i % 11) + " and strict inequations; "
+                + "minimal supporting set " + (i % 13) + " of natural numbers");
+        rake.run(doc);
+        return doc;
+    }
+
+    public void testFlushAndMerge() throws Exception {
+        Index expected = new Index();
+        SegmentedIndex segmented = new SegmentedIndex(directory, 8, 3);
+        IndexWriter writer = new IndexWriter(segmented, rake, 1.0f);
+        IndexSnapshot before = null;
+        for (int i = 0; i < 120; i++) {
+            Document doc = analyzed(i);
+            expected.processDoc(doc, 1.0f);
+            writer.addDocument(doc);
+            if (i == 59) {
+                before = segmented.snapshot();
+            }
+        }
+        assertEquals(60, before.numDocs().intValue());
+        assertSameCounts(expected, segmented.snapshot());
+        segmented.close();
+        assertTrue(segmented.segmentCount() < 6);
+
+        SegmentedIndex reopened = new SegmentedIndex(directory, 8, 3);
+        assertSameCounts(expected, reopened.snapshot());
+        reopened.close();
+    }
+
+    public void testConcurrentWriters() throws Exception {
+        int threads = 4;
+        int docsPerThread = 150;
+        Index expected = new ConcurrentIndex();
+        SegmentedIndex segmented = new SegmentedIndex(directory, 4, 3);
+        IndexWriter writer = new IndexWriter(segmented, rake, 1.0f);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < docsPerThread; i++) {
+                        Document doc = analyzed(thread * docsPerThread + i);
+                        expected.processDoc(doc, 1.0f);
+                        writer.addDocument(doc);
+                    }
+                }));
+            }
+            // snapshots taken while the writers run and segments are merged see whole documents, more and more
+            Future<Integer> snapshots = pool.submit(() -> {
+                int count = 0;
+                int numDocs = 0;
+                while (!done.get()) {
+                    IndexSnapshot snapshot = segmented.snapshot();
+                    assertTrue(snapshot.numDocs() >= numDocs);
+                    numDocs = snapshot.numDocs();
+                    assertTrue(snapshot.docFreq("natural number") <= numDocs);
+                    assertTrue(snapshot.totalDocFreq() <= snapshot.totalTermFreq());
+                    count++;
+                }
+                return count;
+            });
+            for (Future<?> future : writers) {
+                future.get();
+            }
+            done.set(true);
+            assertTrue(snapshots.get() > 0);
+        } finally {
+            done.set(true);
+            pool.shutdown();
+        }
+        assertSameCounts(expected, segmented.snapshot());
+        segmented.close();
+        assertTrue(segmented.segmentCount() < threads * docsPerThread / 4);
+
+        SegmentedIndex reopened = new SegmentedIndex(directory, 4, 3);
+        assertSameCounts(expected, reopened.snapshot());
+        reopened.close();
+    }
+
+    private static void assertSameCounts(Index expected, IndexSnapshot actual) {
+        assertEquals(expected.numDocs(), actual.numDocs());
+        assertEquals(expected.totalTermFreq(), actual.totalTermFreq());
+        assertEquals(expected.totalDocFreq(), actual.totalDocFreq());
+        for (String term : expected.getInvertedIndex().keySet()) {
+            assertEquals(expected.docFreq(term), actual.docFreq(term));
+            assertEquals(expected.totalTermFreq(term), actual.totalTermFreq(term));
+        }
+    }
+
+    public void testFailedFlush() throws Exception {
+        SegmentedIndex segmented = new SegmentedIndex(directory, 1 << 16, 3);
+        for (int i = 0; i < 5; i++) {
+            segmented.processDoc(analyzed(i), 1.0f);
+        }
+        Files.createDirectory(directory.resolve("0.seg"));  // where the next segment goes
+        try {
+            segmented.flush();
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+        // the documents are still buffered, and written by the next flush
+        assertEquals(5, segmented.snapshot().numDocs().intValue());
+        assertFalse(Files.exists(directory.resolve("0.seg")));
+        segmented.processDoc(analyzed(5), 1.0f);
+        segmented.flush();
+        assertEquals(1, segmented.segmentCount());
+        assertEquals(6, segmented.snapshot().numDocs().intValue());
+
+        segmented.processDoc(analyzed(6), 1.0f);
+        Files.createDirectory(directory.resolve("2.seg"));
+        try {
+            segmented.close();
+            fail();
+        } catch (IOException ex) {
+            // expected
+        }
+        try {
+            segmented.processDoc(analyzed(7), 1.0f);
+            fail();
+        } catch (IllegalStateException ex) {
+            // closed anyway
+        }
+        segmented.flush();
+        assertEquals(7, segmented.snapshot().numDocs().intValue());
+
+        SegmentedIndex reopened = new SegmentedIndex(directory);
+        assertEquals(2, reopened.segmentCount());
+        assertEquals(7, reopened.snapshot().numDocs().intValue());
+        reopened.close();
+    }
+}